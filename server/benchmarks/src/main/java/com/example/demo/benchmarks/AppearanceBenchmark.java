@@ -0,0 +1,82 @@
+package com.example.demo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.factory.SignatureAppearanceBuilder;
+import com.example.demo.factory.SignatureAppearanceBuilder.StampType;
+import com.example.demo.factory.SignatureAppearanceCache;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.StampingProperties;
+import com.itextpdf.signatures.PdfSignatureAppearance;
+import com.itextpdf.signatures.PdfSigner;
+
+/**
+ * Building the visible signature appearance, placement included. A fresh
+ * signer is opened before each invocation, outside of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppearanceBenchmark {
+    private static final String TEXT = "Assinado Digitalmente por\nNOME DO USUÁRIO\n(Emitido pelo CPF 690.XXX.XXX-20)\nData: 24/09/2024 11:56:28-03:00";
+
+    @Param({"1", "50"})
+    public int pages;
+
+    @Param({"0", "4"})
+    public int signatures;
+
+    private BenchmarkFixture fixture;
+
+    private byte[] document;
+
+    private final SignatureAppearanceCache cache = new SignatureAppearanceCache();
+
+    private PdfSigner signer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.fixture = new BenchmarkFixture();
+        this.document = SyntheticPdfs.generate(this.fixture, this.pages, 0, this.signatures);
+    }
+
+    @Setup(Level.Invocation)
+    public void openSigner() throws Exception {
+        this.signer = new PdfSigner(new PdfReader(new ByteArrayInputStream(this.document)), OutputStream.nullOutputStream(),
+                new StampingProperties().useAppendMode());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.fixture.close();
+    }
+
+    @Benchmark
+    public PdfSignatureAppearance build() {
+        SignatureAppearanceBuilder builder = new SignatureAppearanceBuilder(this.signer.getDocument(), this.signer.getSignatureAppearance(),
+                true, this.cache)
+                .withText(TEXT)
+                .withStamp(StampType.ICP);
+        builder.calculateFieldName();
+        return builder.build();
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.demo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.config.ExecutorConfig;
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.execution.PdfWorkDispatcher;
+import com.example.demo.factory.SignatureAppearanceCache;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.services.SignatureService;
+import com.example.demo.services.ValidationService;
+import com.example.demo.session.SigningSession;
+import com.example.demo.signature.ContainerSizeEstimator;
+import com.example.demo.signature.ITextPkcs7Signer;
+import com.example.demo.signature.PreparedSignature;
+import com.example.demo.signature.identity.SigningIdentity;
+import com.example.demo.signature.identity.SigningIdentityRegistry;
+import com.example.demo.signature.timestamp.HttpTimestampTransport;
+import com.example.demo.signature.timestamp.TsaClient;
+import com.example.demo.storage.DocumentBuffers;
+import com.example.demo.storage.DocumentSource;
+import com.example.demo.storage.FileSystemPreparedDocumentStore;
+import com.example.demo.validation.CertificatePathCache;
+import com.example.demo.validation.revocation.FileSystemCrlSource;
+import com.example.demo.validation.revocation.RevocationService;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.signatures.SignatureUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * The signing and validation services wired the way the application wires
+ * them, with the default properties, no TSA and no revocation sources. Large
+ * documents and staged PDFs go to a temporary directory removed on close.
+ */
+public class BenchmarkFixture implements Closeable {
+    public static final String KEY_STORE = "/certificates/new.p12";
+
+    public static final char[] PASSWORD = "123456".toCharArray();
+
+    private final Path directory;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    private final CryptoPrimitives cryptoPrimitives = new CryptoPrimitives();
+
+    private final SigningSession signingSession = new SigningSession();
+
+    private final DocumentBuffers documentBuffers;
+
+    private final FileSystemPreparedDocumentStore preparedDocumentStore;
+
+    private final SigningIdentityRegistry signingIdentityRegistry;
+
+    private final SignatureService signatureService;
+
+    private final ValidationService validationService;
+
+    public BenchmarkFixture() throws IOException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SigningObservations observations = new SigningObservations(ObservationRegistry.NOOP, meterRegistry);
+        this.directory = Files.createTempDirectory("signing-benchmarks-");
+        this.executor = new ExecutorConfig().pdfWorkExecutor(0, 1000);
+        this.executor.initialize();
+        PdfWorkDispatcher pdfWorkDispatcher = new PdfWorkDispatcher(this.executor, false);
+        this.documentBuffers = new DocumentBuffers(DataSize.ofMegabytes(16), this.directory.toString());
+        this.preparedDocumentStore = new FileSystemPreparedDocumentStore(this.directory.resolve("staging").toString(), Duration.ofMinutes(30));
+        this.signingIdentityRegistry = new SigningIdentityRegistry(16, Duration.ofMinutes(30), Duration.ofSeconds(5));
+
+        TsaClient tsaClient = new TsaClient(new HttpTimestampTransport(Duration.ofSeconds(10)), this.cryptoPrimitives, meterRegistry,
+                "", "SHA-256", "", 16, Duration.ofSeconds(5), 4096);
+        this.signatureService = new SignatureService(new ITextPkcs7Signer(this.cryptoPrimitives, tsaClient), this.signingSession,
+                this.signingIdentityRegistry, new SignatureAppearanceCache(), this.documentBuffers, this.preparedDocumentStore,
+                this.executor, this.cryptoPrimitives, new ContainerSizeEstimator(meterRegistry, 256, 512), tsaClient,
+                observations, pdfWorkDispatcher, false);
+
+        RevocationService revocationService = new RevocationService(new FileSystemCrlSource(""), (url, request) -> {
+            throw new IOException("OCSP is disabled in the benchmarks");
+        }, this.cryptoPrimitives, false, false, Duration.ofHours(1), Duration.ofMinutes(30), 10000);
+        this.validationService = new ValidationService(
+                new CertificatePathCache(meterRegistry, Duration.ofHours(1), 1000), this.cryptoPrimitives, revocationService,
+                observations, pdfWorkDispatcher);
+    }
+
+    public SignatureService signatureService() {
+        return this.signatureService;
+    }
+
+    public ValidationService validationService() {
+        return this.validationService;
+    }
+
+    public SigningSession signingSession() {
+        return this.signingSession;
+    }
+
+    public CryptoPrimitives cryptoPrimitives() {
+        return this.cryptoPrimitives;
+    }
+
+    public DocumentBuffers documentBuffers() {
+        return this.documentBuffers;
+    }
+
+    public FileSystemPreparedDocumentStore preparedDocumentStore() {
+        return this.preparedDocumentStore;
+    }
+
+    public SigningIdentity identity() throws GeneralSecurityException, IOException {
+        return this.signingIdentityRegistry.resolve(KEY_STORE, PASSWORD);
+    }
+
+    /**
+     * @return The signer certificate in Base64, as the remote signing client sends it.
+     */
+    public String certificateContent() throws GeneralSecurityException, IOException {
+        return Base64.getEncoder().encodeToString(this.identity().getCertificateChain()[0].getEncoded());
+    }
+
+    /**
+     * Plays the client part of the remote flow: signs the bytes prepared by the
+     * start step with the identity key.
+     */
+    public byte[] signAsClient(byte[] toSign) throws GeneralSecurityException, IOException {
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(this.identity().getPrivateKey());
+        signature.update(toSign);
+        return signature.sign();
+    }
+
+    /**
+     * Adds an approval signature through the remote flow, which keeps the
+     * document open to further signatures.
+     */
+    public byte[] signRemotely(byte[] document) throws GeneralSecurityException, IOException {
+        String certificate = this.certificateContent();
+        PreparedSignature prepared = this.signatureService.prepareRemoteSigning(this.documentBuffers.wrap(document), certificate);
+        try (DocumentSource preparedPdf = this.preparedDocumentStore.get(prepared.getPreparedDocumentHandle());
+                DocumentSource signed = this.signatureService.completeRemoteSigning(this.signAsClient(prepared.getToSign()), preparedPdf,
+                        prepared.getFieldName(), prepared.getBeforeAttr(), certificate)) {
+            return signed.toByteArray();
+        } finally {
+            this.preparedDocumentStore.remove(prepared.getPreparedDocumentHandle());
+        }
+    }
+
+    /**
+     * @return The CMS of the last signature of the document.
+     */
+    public static byte[] lastSignatureContents(byte[] document) throws IOException {
+        try (PdfDocument pdf = new PdfDocument(new PdfReader(new ByteArrayInputStream(document)))) {
+            SignatureUtil signatureUtil = new SignatureUtil(pdf);
+            List<String> names = signatureUtil.getSignatureNames();
+            return signatureUtil.getSignature(names.get(names.size() - 1)).getContents().getValueBytes();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.executor.shutdown();
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
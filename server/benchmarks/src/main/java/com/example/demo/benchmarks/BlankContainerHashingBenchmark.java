@@ -0,0 +1,63 @@
+package com.example.demo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.signature.containers.DigestCalcBlankSignatureContainer;
+import com.itextpdf.kernel.pdf.PdfName;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Hashing of the signed byte ranges by the blank container of the remote
+ * start step, measured apart from the PDF writing around it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlankContainerHashingBenchmark {
+    /**
+     * Bytes covered by the signature.
+     */
+    @Param({"100000", "20000000"})
+    public int size;
+
+    private final CryptoPrimitives cryptoPrimitives = new CryptoPrimitives();
+
+    private final SigningObservations observations = new SigningObservations(ObservationRegistry.NOOP, new SimpleMeterRegistry());
+
+    private byte[] ranges;
+
+    @Setup
+    public void setUp() {
+        this.ranges = new byte[this.size];
+        new Random(this.size).nextBytes(this.ranges);
+    }
+
+    @Benchmark
+    public byte[] hash() throws Exception {
+        DigestCalcBlankSignatureContainer container = new DigestCalcBlankSignatureContainer(PdfName.Adobe_PPKLite,
+                PdfName.Adbe_pkcs7_detached, this.cryptoPrimitives, this.observations);
+        container.sign(new ByteArrayInputStream(this.ranges));
+        return container.getDocBytesHash();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.signature.PreparedSignature;
+import com.example.demo.storage.DocumentSource;
+import com.example.demo.storage.FileDocument;
+
+/**
+ * Local signing and both remote signing steps, over documents of different
+ * page counts, sizes and numbers of existing signatures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningBenchmark {
+    @Param({"1", "50"})
+    public int pages;
+
+    /**
+     * Approximate document size in bytes.
+     */
+    @Param({"0", "20000000"})
+    public long size;
+
+    @Param({"0", "4"})
+    public int signatures;
+
+    private BenchmarkFixture fixture;
+
+    private byte[] document;
+
+    /**
+     * Copy of the document on disk, used as the source of large documents
+     * as the controllers do with large uploads.
+     */
+    private Path documentFile;
+
+    private String certificate;
+
+    private PreparedSignature prepared;
+
+    private byte[] clientSignature;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.fixture = new BenchmarkFixture();
+        this.document = SyntheticPdfs.generate(this.fixture, this.pages, this.size, this.signatures);
+        this.documentFile = this.fixture.documentBuffers().createTempFile(".pdf");
+        Files.write(this.documentFile, this.document);
+        this.certificate = this.fixture.certificateContent();
+        this.prepared = this.fixture.signatureService().prepareRemoteSigning(this.fixture.documentBuffers().wrap(this.document), this.certificate);
+        this.clientSignature = this.fixture.signAsClient(this.prepared.getToSign());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.fixture.close();
+    }
+
+    @Benchmark
+    public long locallySign() throws Exception {
+        try (DocumentSource signed = this.fixture.signatureService().locallySign(this.source(), BenchmarkFixture.PASSWORD, false)) {
+            return signed.size();
+        }
+    }
+
+    @Benchmark
+    public long locallySignAppendMode() throws Exception {
+        try (DocumentSource signed = this.fixture.signatureService().locallySign(this.source(), BenchmarkFixture.PASSWORD, true)) {
+            return signed.size();
+        }
+    }
+
+    @Benchmark
+    public PreparedSignature startRemoteSigning() throws Exception {
+        PreparedSignature started = this.fixture.signatureService().startRemoteSigning(this.source(), this.certificate);
+        this.fixture.preparedDocumentStore().remove(started.getPreparedDocumentHandle());
+        return started;
+    }
+
+    @Benchmark
+    public long completeRemoteSigning() throws Exception {
+        try (DocumentSource preparedPdf = this.fixture.preparedDocumentStore().get(this.prepared.getPreparedDocumentHandle());
+                DocumentSource signed = this.fixture.signatureService().completeRemoteSigning(this.clientSignature, preparedPdf,
+                        this.prepared.getFieldName(), this.prepared.getBeforeAttr(), this.certificate)) {
+            return signed.size();
+        }
+    }
+
+    private DocumentSource source() {
+        if (this.fixture.documentBuffers().isLarge(this.document.length)) {
+            return new FileDocument(this.documentFile, false);
+        }
+        return this.fixture.documentBuffers().wrap(this.document);
+    }
+}
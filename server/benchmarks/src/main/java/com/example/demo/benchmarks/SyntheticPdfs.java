@@ -0,0 +1,97 @@
+package com.example.demo.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Random;
+
+import com.itextpdf.kernel.pdf.CompressionConstants;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.element.Paragraph;
+
+/**
+ * Generates the documents the benchmarks run on. Each document has the given
+ * number of text pages and is padded with an uncompressed stream of random
+ * bytes up to roughly the requested size. Existing signatures are added with
+ * the remote flow, so they are approval signatures that leave the document
+ * open to the signature being measured.
+ *
+ * Documents are reproducible: the text and padding come from a fixed seed.
+ */
+public final class SyntheticPdfs {
+    private static final long SEED = 20240924L;
+
+    private static final int PARAGRAPHS_PER_PAGE = 12;
+
+    private static final PdfName PADDING = new PdfName("BenchmarkPadding");
+
+    private SyntheticPdfs() {
+    }
+
+    /**
+     * @param pages Number of pages.
+     * @param size Approximate document size in bytes, 0 for no padding.
+     * @param signatures Number of signatures the document already carries.
+     */
+    public static byte[] generate(BenchmarkFixture fixture, int pages, long size, int signatures)
+            throws IOException, GeneralSecurityException {
+        byte[] document = unsigned(pages, size);
+        for (int i = 0; i < signatures; i++) {
+            document = fixture.signRemotely(document);
+        }
+        return document;
+    }
+
+    public static byte[] unsigned(int pages, long size) throws IOException {
+        Random random = new Random(SEED);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PdfDocument pdf = new PdfDocument(new PdfWriter(output));
+                Document layout = new Document(pdf)) {
+            for (int page = 1; page <= pages; page++) {
+                if (page > 1) {
+                    layout.add(new AreaBreak());
+                }
+                for (int i = 0; i < PARAGRAPHS_PER_PAGE; i++) {
+                    layout.add(new Paragraph(sentence(random)));
+                }
+            }
+            layout.flush();
+
+            long padding = size - estimatedSize(pages);
+            if (padding > 0) {
+                byte[] bytes = new byte[(int) Math.min(padding, Integer.MAX_VALUE - 8)];
+                random.nextBytes(bytes);
+                PdfStream stream = new PdfStream(bytes);
+                stream.setCompressionLevel(CompressionConstants.NO_COMPRESSION);
+                pdf.getCatalog().put(PADDING, stream.makeIndirect(pdf));
+            }
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Rough size of the text pages alone, so the padding does not overshoot
+     * small targets by much.
+     */
+    private static long estimatedSize(int pages) {
+        return 2048L + pages * 1536L;
+    }
+
+    private static String sentence(Random random) {
+        StringBuilder sentence = new StringBuilder();
+        int words = 20 + random.nextInt(40);
+        for (int i = 0; i < words; i++) {
+            int length = 2 + random.nextInt(9);
+            for (int j = 0; j < length; j++) {
+                sentence.append((char) ('a' + random.nextInt(26)));
+            }
+            sentence.append(i + 1 < words ? ' ' : '.');
+        }
+        return sentence.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.response.ValidationResult;
+
+/**
+ * Validation of a CMS signature made by the local signing flow. Without the
+ * ICP-Brasil root in the resources the chain check ends early, so this
+ * mostly measures the CMS parsing and the cryptographic checks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+    private BenchmarkFixture fixture;
+
+    private byte[] signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.fixture = new BenchmarkFixture();
+        byte[] signed = this.fixture.signRemotely(SyntheticPdfs.unsigned(1, 0));
+        this.signature = BenchmarkFixture.lastSignatureContents(signed);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.fixture.close();
+    }
+
+    @Benchmark
+    public ValidationResult validateSignature() {
+        return this.fixture.validationService().validateSignature(this.signature);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.demo.benchmarks;
+/**
+ * This package is reserved for the JMH benchmarks of the signing and
+ * validation hot paths. The services are wired by hand in
+ * {@link com.example.demo.benchmarks.BenchmarkFixture}, without a Spring
+ * context or Redis, and run over documents made by
+ * {@link com.example.demo.benchmarks.SyntheticPdfs}.
+ */
@@ -0,0 +1,203 @@
+package com.example.demo.admission;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.demo.observability.SigningObservations.Flow;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admits the document requests within the {@link MemoryBudget}, before their
+ * body is read and before the session is loaded. The heap cost of a request
+ * is estimated from its declared length, or the maximum request size when it
+ * has none, times the cost factor of its flow, which accounts for the copies
+ * the flow makes (received document, signed output, iText structures).
+ *
+ * A request waits up to {@code signing.admission.max-wait} for room, then is
+ * rejected with a 503 and a {@code Retry-After}. The reservation is held until
+ * the response is complete, streamed responses included.
+ *
+ * Job submissions are admitted like the flow they run, as their upload is
+ * received the same way; the job itself reserves again when it runs.
+ *
+ * The remote complete step only uploads the client signature, so its cost
+ * is the minimum cost times its factor; the prepared document it loads is
+ * not known at this point.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionFilter extends OncePerRequestFilter {
+    private final MemoryBudget memoryBudget;
+
+    private final Duration maxWait;
+
+    private final Duration retryAfter;
+
+    private final long minimumCost;
+
+    private final long unknownLength;
+
+    private final double localFactor;
+
+    private final double remoteStartFactor;
+
+    private final double remoteCompleteFactor;
+
+    private final double validateFactor;
+
+    private final Counter admitted;
+
+    private final Counter rejected;
+
+    public AdmissionFilter(MemoryBudget memoryBudget, MeterRegistry meterRegistry,
+            @Value("${signing.admission.max-wait:PT10S}") Duration maxWait,
+            @Value("${signing.admission.retry-after:PT5S}") Duration retryAfter,
+            @Value("${signing.admission.minimum-cost:1MB}") DataSize minimumCost,
+            @Value("${spring.servlet.multipart.max-request-size:150MB}") DataSize maxRequestSize,
+            @Value("${signing.admission.cost-factor.local:3}") double localFactor,
+            @Value("${signing.admission.cost-factor.remote-start:3}") double remoteStartFactor,
+            @Value("${signing.admission.cost-factor.remote-complete:2}") double remoteCompleteFactor,
+            @Value("${signing.admission.cost-factor.validate:2}") double validateFactor) {
+        this.memoryBudget = memoryBudget;
+        this.maxWait = maxWait;
+        this.retryAfter = retryAfter;
+        this.minimumCost = minimumCost.toBytes();
+        this.unknownLength = maxRequestSize.toBytes();
+        this.localFactor = localFactor;
+        this.remoteStartFactor = remoteStartFactor;
+        this.remoteCompleteFactor = remoteCompleteFactor;
+        this.validateFactor = validateFactor;
+        this.admitted = Counter.builder("signing.admission.requests")
+                .tag("result", "admitted")
+                .description("Document requests admitted within the memory budget")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("signing.admission.requests")
+                .tag("result", "rejected")
+                .description("Document requests rejected for lack of room in the memory budget")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return flowOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        MemoryBudget.Reservation reservation;
+        try {
+            reservation = this.memoryBudget.reserve(this.estimateCost(request), this.maxWait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reservation = null;
+        }
+        if (reservation == null) {
+            this.rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, this.retryAfter.toSeconds())));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many documents in progress, retry later");
+            return;
+        }
+        this.admitted.increment();
+
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // Streamed responses keep their document until they are written
+                request.getAsyncContext().addListener(new ReleasingListener(reservation));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                reservation.release();
+            }
+        }
+    }
+
+    private long estimateCost(HttpServletRequest request) {
+        long length = request.getContentLengthLong();
+        long declared = length >= 0 ? length : this.unknownLength;
+        return (long) (Math.max(declared, this.minimumCost) * this.factorOf(flowOf(request)));
+    }
+
+    private double factorOf(Flow flow) {
+        switch (flow) {
+            case LOCAL:
+                return this.localFactor;
+            case REMOTE_START:
+                return this.remoteStartFactor;
+            case REMOTE_COMPLETE:
+                return this.remoteCompleteFactor;
+            default:
+                return this.validateFactor;
+        }
+    }
+
+    /**
+     * @return The flow the request belongs to, or null for the requests that
+     * do not process documents.
+     */
+    private static Flow flowOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/local-signing/") || path.equals("/jobs/local-signing")) {
+            return Flow.LOCAL;
+        }
+        if (path.equals("/remote-signing/start") || path.equals("/remote-signing/batch/start")) {
+            return Flow.REMOTE_START;
+        }
+        if (path.equals("/remote-signing/complete") || path.equals("/remote-signing/batch/complete")) {
+            return Flow.REMOTE_COMPLETE;
+        }
+        if (path.startsWith("/validation/") || path.startsWith("/validationn/") || path.equals("/jobs/validation")) {
+            return Flow.VALIDATE;
+        }
+        return null;
+    }
+
+    private static final class ReleasingListener implements AsyncListener {
+        private final MemoryBudget.Reservation reservation;
+
+        private ReleasingListener(MemoryBudget.Reservation reservation) {
+            this.reservation = reservation;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            this.reservation.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            this.reservation.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            this.reservation.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // the listener has to be added again to a restarted async cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.admission;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Heap budget shared by the requests processing documents. A request reserves
+ * its estimated cost before its body is read and releases it once its
+ * response is written. Reservations are granted first come first served, so
+ * a large document waiting for room is not overtaken forever by small ones.
+ *
+ * The budget is counted in KiB to fit a {@link Semaphore}.
+ */
+@Component
+public class MemoryBudget {
+    private final int capacity;
+
+    private final int maxQueued;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Timer waitTimer;
+
+    public MemoryBudget(MeterRegistry meterRegistry,
+            @Value("${signing.admission.budget:0}") DataSize budget,
+            @Value("${signing.admission.max-queued:100}") int maxQueued) {
+        long bytes = budget.toBytes() > 0 ? budget.toBytes() : Runtime.getRuntime().maxMemory() / 2;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE, bytes / 1024);
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(this.capacity, true);
+        this.waitTimer = Timer.builder("signing.admission.wait")
+                .description("Time requests waited for room in the memory budget")
+                .register(meterRegistry);
+        Gauge.builder("signing.admission.budget", this, MemoryBudget::getCapacityBytes)
+                .baseUnit("bytes")
+                .description("Heap budget of the document requests")
+                .register(meterRegistry);
+        Gauge.builder("signing.admission.in-use", this, MemoryBudget::getReservedBytes)
+                .baseUnit("bytes")
+                .description("Part of the budget reserved by the requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("signing.admission.queued", this.queued, AtomicInteger::get)
+                .description("Requests waiting for room in the budget")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserves {@code bytes}, waiting up to {@code maxWait} for room. A cost
+     * above the whole budget is reduced to it, so such a request runs alone
+     * instead of never running.
+     *
+     * @return The reservation to release, or null when the budget had no room
+     * in time or too many requests were already waiting.
+     */
+    public Reservation reserve(long bytes, Duration maxWait) throws InterruptedException {
+        int kib = (int) Math.min(this.capacity, Math.max(1, (bytes + 1023) / 1024));
+        // The timed form keeps the fairness, the untimed one would overtake the waiting requests
+        if (this.permits.tryAcquire(kib, 0, TimeUnit.NANOSECONDS)) {
+            this.waitTimer.record(Duration.ZERO);
+            return new Reservation(kib);
+        }
+        if (this.queued.incrementAndGet() > this.maxQueued) {
+            this.queued.decrementAndGet();
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!this.permits.tryAcquire(kib, maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                return null;
+            }
+            return new Reservation(kib);
+        } finally {
+            this.queued.decrementAndGet();
+            this.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public long getCapacityBytes() {
+        return this.capacity * 1024L;
+    }
+
+    public long getReservedBytes() {
+        return (this.capacity - (long) this.permits.availablePermits()) * 1024L;
+    }
+
+    public int getQueued() {
+        return this.queued.get();
+    }
+
+    /**
+     * Part of the budget held by one request. Releasing it more than once has
+     * no effect.
+     */
+    public final class Reservation {
+        private final int kib;
+
+        private boolean released;
+
+        private Reservation(int kib) {
+            this.kib = kib;
+        }
+
+        public synchronized void release() {
+            if (!this.released) {
+                this.released = true;
+                MemoryBudget.this.permits.release(this.kib);
+            }
+        }
+    }
+}
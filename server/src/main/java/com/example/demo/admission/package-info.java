@@ -0,0 +1,5 @@
+package com.example.demo.admission;
+/**
+ * This package is reserved for the admission of the document requests, which
+ * keeps the memory they need within a budget.
+ */
@@ -0,0 +1,61 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.example.demo.execution.PdfWorkDispatcher;
+
+import io.micrometer.context.ContextSnapshotFactory;
+
+@Configuration
+public class ExecutorConfig {
+    /**
+     * Pool for the CPU bound PDF work (parsing, appearance, hashing, CMS).
+     * Sized to the number of cores by default, since more threads than cores
+     * only adds contention for this kind of work.
+     */
+    @Bean(name = "pdfWorkExecutor")
+    public ThreadPoolTaskExecutor pdfWorkExecutor(
+            @Value("${signing.workers.size:0}") int size,
+            @Value("${signing.workers.queue-capacity:1000}") int queueCapacity) {
+        int poolSize = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("pdf-work-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setTaskDecorator(PdfWorkDispatcher.decorator(ContextSnapshotFactory.builder().build()));
+        return executor;
+    }
+
+    /**
+     * Pool running the asynchronous jobs, one job per thread. Kept small so
+     * jobs do not crowd out the requests on the PDF work pool. Jobs
+     * interrupted by a shutdown are restarted from disk on the next startup.
+     */
+    @Bean(name = "jobWorkerExecutor")
+    public ThreadPoolTaskExecutor jobWorkerExecutor(@Value("${signing.jobs.workers:2}") int size) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setThreadNamePrefix("job-worker-");
+        return executor;
+    }
+
+    /**
+     * Pool sending the job callbacks, so a slow callback receiver holds up
+     * neither the job workers nor the next jobs.
+     */
+    @Bean(name = "jobCallbackExecutor")
+    public ThreadPoolTaskExecutor jobCallbackExecutor(@Value("${signing.jobs.callback-workers:2}") int size) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setThreadNamePrefix("job-callback-");
+        return executor;
+    }
+}
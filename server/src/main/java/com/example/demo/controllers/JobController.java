@@ -0,0 +1,94 @@
+package com.example.demo.controllers;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.example.demo.dto.response.JobResponse;
+import com.example.demo.helpers.DocumentResponseHelper;
+import com.example.demo.jobs.Job;
+import com.example.demo.jobs.JobService;
+import com.example.demo.jobs.JobStatus;
+
+/**
+ * Asynchronous local signing and validation. A submission answers 202 with
+ * the job and its location; the client polls {@code GET jobs/{id}} or waits
+ * for the callback, then downloads {@code GET jobs/{id}/result}.
+ */
+@RequestMapping("jobs")
+@RestController
+public class JobController {
+    private final JobService jobService;
+
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * @param appendMode Adds the signature as an incremental update, defaults to
+     * {@code signing.local.append-mode}.
+     * @param callbackUrl Receives a POST of the job once it is finished.
+     */
+    @PostMapping(value = "local-signing", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<JobResponse> submitLocalSigning(@RequestPart MultipartFile file,
+            @RequestParam(required = false) Boolean appendMode,
+            @RequestParam(required = false) String callbackUrl) throws IOException {
+        return this.accepted(this.jobService.submitLocalSigning(file, appendMode, callbackUrl));
+    }
+
+    /**
+     * Verifies every signature of the document, the result is the
+     * verification report.
+     */
+    @PostMapping(value = "validation", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<JobResponse> submitValidation(@RequestPart MultipartFile file,
+            @RequestParam(required = false) String callbackUrl) throws IOException {
+        return this.accepted(this.jobService.submitValidation(file, callbackUrl));
+    }
+
+    @GetMapping("{id}")
+    public ResponseEntity<JobResponse> get(@PathVariable String id) throws IOException {
+        Job job = this.jobService.find(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(this.jobService.toResponse(job));
+    }
+
+    /**
+     * Streams the result of a succeeded job. Answers 409 while the job is not
+     * finished or when it failed, the job itself tells which.
+     */
+    @GetMapping("{id}/result")
+    public ResponseEntity<StreamingResponseBody> result(@PathVariable String id) throws IOException {
+        Job job = this.jobService.find(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.getStatus() != JobStatus.SUCCEEDED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return DocumentResponseHelper.stream(this.jobService.openResult(job), job.getType().getResultMediaType());
+    }
+
+    private ResponseEntity<JobResponse> accepted(Job job) {
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/jobs/{id}")
+                .buildAndExpand(job.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(this.jobService.toResponse(job));
+    }
+}
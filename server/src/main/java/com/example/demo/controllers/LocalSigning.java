@@ -2,28 +2,81 @@ package com.example.demo.controllers;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.helpers.DocumentResponseHelper;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.observability.SigningObservations.Flow;
+import com.example.demo.observability.SigningObservations.Phase;
+import com.example.demo.services.BulkSigningService;
 import com.example.demo.services.SignatureService;
+import com.example.demo.storage.DocumentBuffers;
+import com.example.demo.storage.DocumentSource;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RequestMapping("local-signing")
 @RestController
 public class LocalSigning {
     private final SignatureService signatureService;
-    private static final char[] password = "123456".toCharArray();
+    private final BulkSigningService bulkSigningService;
+    private final DocumentBuffers documentBuffers;
+    private final SigningObservations observations;
+    private final char[] password;
 
-    public LocalSigning(SignatureService signatureService) {
+    public LocalSigning(SignatureService signatureService, BulkSigningService bulkSigningService, DocumentBuffers documentBuffers,
+            SigningObservations observations, @Value("${signing.local.key-password}") String password) {
         this.signatureService = signatureService;
+        this.bulkSigningService = bulkSigningService;
+        this.documentBuffers = documentBuffers;
+        this.observations = observations;
+        this.password = password.toCharArray();
     }
 
+    /**
+     * @param appendMode Adds the signature as an incremental update, defaults to
+     * {@code signing.local.append-mode}.
+     */
     @GetMapping("sign")
-    public ResponseEntity<byte[]> sign(@RequestPart MultipartFile file) throws IOException, GeneralSecurityException {
-        byte[] signedPdf = this.signatureService.locallySign(file.getBytes(), password);
-        return ResponseEntity.ok(signedPdf);
+    public ResponseEntity<StreamingResponseBody> sign(@RequestPart MultipartFile file, @RequestParam(required = false) Boolean appendMode)
+            throws IOException, GeneralSecurityException {
+        try (DocumentSource document = this.observations.observe(Flow.LOCAL, Phase.READ, () -> this.documentBuffers.receive(file))) {
+            DocumentSource signedPdf = appendMode == null
+                    ? this.signatureService.locallySign(document, password)
+                    : this.signatureService.locallySign(document, password, appendMode);
+            return DocumentResponseHelper.stream(signedPdf);
+        }
+    }
+
+    /**
+     * Signs every uploaded file and streams the signed documents back as a ZIP,
+     * each one as soon as it is signed.
+     */
+    @PostMapping(value = "bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> bulk(@RequestPart List<MultipartFile> files) {
+        StreamingResponseBody body = outputStream -> this.bulkSigningService.signAll(files, password, outputStream);
+        return ResponseEntity.ok().contentType(DocumentResponseHelper.ZIP).body(body);
+    }
+
+    /**
+     * Same as {@link #bulk(List)} for a ZIP of PDFs sent as the request body.
+     * The ZIP is read entry by entry while the signed ZIP is written.
+     */
+    @PostMapping(value = "bulk", consumes = "application/zip")
+    public ResponseEntity<StreamingResponseBody> bulkZip(HttpServletRequest request) {
+        StreamingResponseBody body = outputStream -> this.bulkSigningService.signAll(request.getInputStream(), password, outputStream);
+        return ResponseEntity.ok().contentType(DocumentResponseHelper.ZIP).body(body);
     }
 }
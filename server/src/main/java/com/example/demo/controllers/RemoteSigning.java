@@ -2,20 +2,38 @@ package com.example.demo.controllers;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.dto.request.BatchCompleteSigningRequest;
+import com.example.demo.dto.response.BatchStartSigningResponse;
 import com.example.demo.dto.response.StartSigningResponse;
+import com.example.demo.helpers.DocumentResponseHelper;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.observability.SigningObservations.Flow;
+import com.example.demo.observability.SigningObservations.Phase;
 import com.example.demo.services.SignatureService;
 import com.example.demo.session.SigningSession;
+import com.example.demo.signature.PreparedSignature;
+import com.example.demo.storage.DocumentBuffers;
+import com.example.demo.storage.DocumentSource;
+import com.example.demo.storage.PreparedDocumentStore;
 
 import jakarta.servlet.http.HttpSession;
 
@@ -26,40 +44,156 @@ public class RemoteSigning {
 
     private final SignatureService signatureService;
 
+    private final DocumentBuffers documentBuffers;
+
+    private final PreparedDocumentStore preparedDocumentStore;
+
+    private final SigningObservations observations;
+
     @Autowired
-    public RemoteSigning(SigningSession signingSession, SignatureService signatureService) {
+    public RemoteSigning(SigningSession signingSession, SignatureService signatureService, DocumentBuffers documentBuffers,
+        PreparedDocumentStore preparedDocumentStore, SigningObservations observations) {
         this.signingSession = signingSession;
         this.signatureService = signatureService;
+        this.documentBuffers = documentBuffers;
+        this.preparedDocumentStore = preparedDocumentStore;
+        this.observations = observations;
     }
 
+    /**
+     * 1st step. Answers with the JSON {@link StartSigningResponse} (Base64 fields)
+     * by default, or with a multipart/mixed body carrying the raw to-be-signed
+     * bytes and prepared PDF when the client accepts it.
+     */
     @PostMapping("start")
-    public ResponseEntity<StartSigningResponse> start(
+    public ResponseEntity<?> start(
         @RequestPart MultipartFile file,
         @RequestParam String certContent,
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
         HttpSession session) throws IOException, GeneralSecurityException {
-        return ResponseEntity.ok(this.signatureService.startRemoteSigning(file.getBytes(), certContent));
+        PreparedSignature preparedSignature;
+        try (DocumentSource document = this.observations.observe(Flow.REMOTE_START, Phase.READ, () -> this.documentBuffers.receive(file))) {
+            preparedSignature = this.signatureService.startRemoteSigning(document, certContent);
+        }
+
+        if (!acceptsBinary(accept)) {
+            return ResponseEntity.ok(this.signatureService.toStartSigningResponse(preparedSignature));
+        }
+
+        DocumentSource preparedPdf = this.preparedDocumentStore.get(preparedSignature.getPreparedDocumentHandle());
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("toSignHash", preparedSignature.getToSign(), MediaType.APPLICATION_OCTET_STREAM);
+        // Released once the converter has written the part
+        body.part("preparedPdf", DocumentResponseHelper.resource(preparedPdf), MediaType.APPLICATION_PDF)
+            .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(preparedPdf.size()));
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.MULTIPART_MIXED)
+            .body(body.build());
     }
 
+    /**
+     * 2nd step, JSON/form clients: the client signature comes Base64 encoded.
+     */
     @PostMapping("complete")
-    public ResponseEntity<byte[]> complete(@RequestParam String signedHash, HttpSession session)
+    public ResponseEntity<StreamingResponseBody> complete(@RequestParam String signedHash, HttpSession session)
+        throws IOException, GeneralSecurityException {
+        return this.complete(Base64.getDecoder().decode(signedHash), session);
+    }
+
+    /**
+     * 2nd step, binary clients: the request body is the raw client signature.
+     */
+    @PostMapping(value = "complete", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> completeBinary(@RequestBody byte[] signedHash, HttpSession session)
         throws IOException, GeneralSecurityException {
+        return this.complete(signedHash, session);
+    }
 
-        byte[] preparedPdfBytes = this.signingSession.getPreparedPdfBytes();
+    private ResponseEntity<StreamingResponseBody> complete(byte[] clientSignatureBytes, HttpSession session)
+        throws IOException, GeneralSecurityException {
+
+        String preparedDocumentHandle = this.signingSession.getPreparedDocumentHandle();
         String fieldName = this.signingSession.getFieldName();
         String certCont = this.signingSession.getCertContent();
         byte[] beforeAttrBytes = this.signingSession.getBeforeAttr();
 
-        Assert.notNull(preparedPdfBytes, "Prepared PDF bytes not found in session");
+        Assert.notNull(preparedDocumentHandle, "Prepared PDF not found in session");
         Assert.notNull(fieldName, "Field name not found in session");
         Assert.notNull(certCont, "Cert content not found in session");
         Assert.notNull(certCont, "Before attribute container bytes not found in session");
-        
-        byte[] clientSignatureBytes = Base64.getDecoder().decode(signedHash);
 
-        byte[] signedPdf = this.signatureService.completeRemoteSigning(clientSignatureBytes, preparedPdfBytes, fieldName, beforeAttrBytes, certCont);
+        DocumentSource signedPdf;
+        try (DocumentSource preparedPdf = this.preparedDocumentStore.get(preparedDocumentHandle)) {
+            signedPdf = this.signatureService.completeRemoteSigning(clientSignatureBytes, preparedPdf, fieldName, beforeAttrBytes, certCont);
+        }
+        this.preparedDocumentStore.remove(preparedDocumentHandle);
+
+        session.invalidate();
+        return DocumentResponseHelper.stream(signedPdf);
+    }
+
+    /**
+     * Batch 1st step. Prepares all the documents concurrently and returns every
+     * hash to be signed at once, in the order of the uploaded files.
+     */
+    @PostMapping("batch/start")
+    public ResponseEntity<BatchStartSigningResponse> startBatch(
+        @RequestPart List<MultipartFile> files,
+        @RequestParam String certContent,
+        HttpSession session) throws IOException, GeneralSecurityException {
+        List<DocumentSource> documents = new ArrayList<>(files.size());
+        List<String> documentNames = new ArrayList<>(files.size());
+        List<PreparedSignature> batch;
+        try {
+            for (MultipartFile file : files) {
+                documents.add(this.observations.observe(Flow.REMOTE_START, Phase.READ, () -> this.documentBuffers.receive(file)));
+                documentNames.add(file.getOriginalFilename());
+            }
+            batch = this.signatureService.startRemoteSigningBatch(documents, documentNames, certContent);
+        } finally {
+            for (DocumentSource document : documents) {
+                document.close();
+            }
+        }
+
+        BatchStartSigningResponse response = new BatchStartSigningResponse();
+        response.setDocumentNames(documentNames);
+        response.setToSignHashes(batch.stream()
+            .map(prepared -> Base64.getEncoder().encodeToString(prepared.getToSign()))
+            .toList());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Batch 2nd step. Embeds the client signatures concurrently and returns the
+     * signed documents as a ZIP archive.
+     */
+    @PostMapping("batch/complete")
+    public ResponseEntity<StreamingResponseBody> completeBatch(@RequestBody BatchCompleteSigningRequest request, HttpSession session)
+        throws IOException, GeneralSecurityException {
+        List<PreparedSignature> batch = this.signingSession.getBatch();
+        String certCont = this.signingSession.getCertContent();
+
+        Assert.notNull(batch, "Batch not found in session");
+        Assert.notNull(certCont, "Cert content not found in session");
+        Assert.notNull(request.getSignedHashes(), "Signed hashes not found in request");
+
+        List<byte[]> clientSignatures = request.getSignedHashes().stream()
+            .map(signedHash -> Base64.getDecoder().decode(signedHash))
+            .toList();
+        List<DocumentSource> signedPdfs = this.signatureService.completeRemoteSigningBatch(clientSignatures, batch, certCont);
 
         session.invalidate();
-        return ResponseEntity.ok(signedPdf);
+        return DocumentResponseHelper.zip(batch.stream().map(PreparedSignature::getDocumentName).toList(), signedPdfs);
+    }
+
+    private static boolean acceptsBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        return MediaType.parseMediaTypes(accept).stream()
+            .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.MULTIPART_MIXED));
     }
 
 }
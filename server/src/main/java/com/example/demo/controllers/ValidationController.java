@@ -1,12 +1,20 @@
 package com.example.demo.controllers;
 
 import com.example.demo.dto.response.ValidationResult;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.observability.SigningObservations.Flow;
+import com.example.demo.observability.SigningObservations.Phase;
 import com.example.demo.services.ValidationService;
+import com.example.demo.validation.ValidationResultCache;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -17,12 +25,48 @@ public class ValidationController {
   @Autowired
   private ValidationService validationService;
 
+  @Autowired
+  private ValidationResultCache validationResultCache;
+
+  @Autowired
+  private SigningObservations observations;
+
+  /**
+   * Validates the signature, reusing the cached result of identical bytes.
+   * The response carries an ETag; a client sending it back in
+   * {@code If-None-Match} gets a 304 while the result is still cached and the
+   * trust store and revocation data have not changed, and may then omit the file.
+   * When the file is sent, only its own entity tag gets a 304. Results cut
+   * short by an exception are not cached.
+   */
   @PostMapping("/validate")
   public ResponseEntity<ValidationResult> validateSignature(
-          @RequestPart MultipartFile file) {
+          @RequestPart(required = false) MultipartFile file,
+          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
       try {
-          ValidationResult result = validationService.validateSignature(file.getBytes());
-          return ResponseEntity.ok(result);
+          if (file == null) {
+              String cachedKey = findCachedKey(ifNoneMatch);
+              if (cachedKey != null) {
+                  return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cachedKey).build();
+              }
+              ValidationResult errorResult = new ValidationResult();
+              errorResult.addError("The file is required unless a current ETag is sent in If-None-Match");
+              return ResponseEntity.badRequest().body(errorResult);
+          }
+
+          byte[] bytes = observations.observe(Flow.VALIDATE, Phase.READ, file::getBytes);
+          String key = validationResultCache.keyOf(bytes);
+          if (entityTagsOf(ifNoneMatch).contains(key) && validationResultCache.contains(key)) {
+              return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(key).build();
+          }
+          ValidationResult result = validationResultCache.get(key);
+          if (result == null) {
+              result = validationService.validateSignature(bytes);
+              if (!result.isIncomplete()) {
+                  validationResultCache.put(key, result);
+              }
+          }
+          return ResponseEntity.ok().eTag(key).body(result);
       } catch (Exception e) {
           ValidationResult errorResult = new ValidationResult();
           errorResult.addError("Error processing request: " + e.getMessage());
@@ -30,4 +74,33 @@ public class ValidationController {
                              .body(errorResult);
       }
   }
-}
\ No newline at end of file
+
+  private String findCachedKey(String ifNoneMatch) {
+      for (String key : entityTagsOf(ifNoneMatch)) {
+          if (validationResultCache.contains(key)) {
+              return key;
+          }
+      }
+      return null;
+  }
+
+  private static List<String> entityTagsOf(String ifNoneMatch) {
+      List<String> tags = new ArrayList<>();
+      if (ifNoneMatch == null) {
+          return tags;
+      }
+      for (String tag : ifNoneMatch.split(",")) {
+          String key = tag.trim();
+          if (key.startsWith("W/")) {
+              key = key.substring(2);
+          }
+          if (key.length() > 1 && key.startsWith("\"") && key.endsWith("\"")) {
+              key = key.substring(1, key.length() - 1);
+          }
+          if (!key.isEmpty()) {
+              tags.add(key);
+          }
+      }
+      return tags;
+  }
+}
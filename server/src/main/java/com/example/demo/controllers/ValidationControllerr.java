@@ -10,8 +10,15 @@ import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.demo.dto.response.SignatureInspectionReport;
+import com.example.demo.dto.response.SignatureVerificationReport;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.observability.SigningObservations.Flow;
+import com.example.demo.observability.SigningObservations.Phase;
 import com.example.demo.services.SignatureInformationService;
 import com.example.demo.services.ValidationServicee;
+import com.example.demo.storage.DocumentBuffers;
+import com.example.demo.storage.DocumentSource;
 
 @RequestMapping("validationn")
 @RestController
@@ -20,15 +27,43 @@ public class ValidationControllerr {
 
     private final SignatureInformationService signatureInformationService;
 
-    public ValidationControllerr(ValidationServicee validationService, SignatureInformationService signatureInformationService) {
+    private final DocumentBuffers documentBuffers;
+
+    private final SigningObservations observations;
+
+    public ValidationControllerr(ValidationServicee validationService, SignatureInformationService signatureInformationService,
+            DocumentBuffers documentBuffers, SigningObservations observations) {
         this.validationService = validationService;
         this.signatureInformationService = signatureInformationService;
+        this.documentBuffers = documentBuffers;
+        this.observations = observations;
     }
 
     @PostMapping("validate-signatures")
-    public ResponseEntity<Void> validateSignatures(@RequestPart MultipartFile file) throws IOException, GeneralSecurityException, NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
+    public ResponseEntity<Void> validateSignatures(@RequestPart MultipartFile file) throws IOException, GeneralSecurityException {
         this.validationService.verifySignatures(file.getBytes());
-        this.signatureInformationService.inspectSignatures(file.getBytes());
         return ResponseEntity.ok(null);
     }
+
+    /**
+     * Describes every signature of the document: widget, algorithms, signer,
+     * timestamp and permissions.
+     */
+    @PostMapping("inspect-signatures")
+    public ResponseEntity<SignatureInspectionReport> inspectSignatures(@RequestPart MultipartFile file) throws IOException, GeneralSecurityException {
+        try (DocumentSource document = this.documentBuffers.receive(file)) {
+            return ResponseEntity.ok(this.signatureInformationService.inspectSignatures(document));
+        }
+    }
+
+    /**
+     * Verifies all the signatures of the document in parallel and returns one
+     * ordered report.
+     */
+    @PostMapping("verify-signatures")
+    public ResponseEntity<SignatureVerificationReport> verifySignatures(@RequestPart MultipartFile file) throws IOException, GeneralSecurityException {
+        try (DocumentSource document = this.observations.observe(Flow.VALIDATE, Phase.READ, () -> this.documentBuffers.receive(file))) {
+            return ResponseEntity.ok(this.validationService.verifySignaturesInParallel(document));
+        }
+    }
 }
@@ -0,0 +1,152 @@
+package com.example.demo.crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.Security;
+import java.security.Signature;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.SignerInformationVerifier;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.springframework.stereotype.Component;
+
+import com.itextpdf.signatures.DigestAlgorithms;
+import com.itextpdf.signatures.IExternalDigest;
+
+/**
+ * Single place where the Bouncy Castle provider is registered and where the
+ * JCA primitives used on the signing and validation hot paths come from.
+ *
+ * The provider is registered once per JVM. Primitives that are not thread safe
+ * ({@link MessageDigest}, {@link Signature}, {@link CertificateFactory} and the
+ * signer verifier builder) are kept in per-thread pools, so repeated calls on
+ * the same thread reuse the same instances instead of going through the
+ * provider lookup again. A pooled instance must be fully used before the same
+ * thread asks for another one of the same kind.
+ */
+@Component
+public class CryptoPrimitives {
+    private static final Provider PROVIDER = registerProvider();
+
+    private static final String X509 = "X.509";
+
+    private final ThreadLocal<Map<String, MessageDigest>> messageDigests = ThreadLocal.withInitial(HashMap::new);
+
+    private final ThreadLocal<Map<String, Signature>> signatures = ThreadLocal.withInitial(HashMap::new);
+
+    private final ThreadLocal<CertificateFactory> certificateFactories = ThreadLocal.withInitial(CryptoPrimitives::newCertificateFactory);
+
+    private final ThreadLocal<JcaSimpleSignerInfoVerifierBuilder> verifierBuilders =
+            ThreadLocal.withInitial(() -> new JcaSimpleSignerInfoVerifierBuilder().setProvider(PROVIDER));
+
+    /**
+     * Digest prototypes handed out as clones to iText, which keeps the digests
+     * it receives for the whole life of a {@code PdfPKCS7}.
+     */
+    private final Map<String, MessageDigest> digestPrototypes = new ConcurrentHashMap<>();
+
+    private final IExternalDigest externalDigest = this::cloneDigest;
+
+    private static synchronized Provider registerProvider() {
+        Provider provider = Security.getProvider(BouncyCastleProvider.PROVIDER_NAME);
+        if (provider == null) {
+            provider = new BouncyCastleProvider();
+            Security.addProvider(provider);
+        }
+        return provider;
+    }
+
+    public static Provider provider() {
+        return PROVIDER;
+    }
+
+    /**
+     * @param hashAlgorithm Digest name or OID, as understood by iText's {@link DigestAlgorithms}.
+     * @return This thread's digest for the algorithm, reset.
+     */
+    public MessageDigest messageDigest(String hashAlgorithm) throws GeneralSecurityException {
+        Map<String, MessageDigest> pool = this.messageDigests.get();
+        MessageDigest digest = pool.get(hashAlgorithm);
+        if (digest == null) {
+            digest = newMessageDigest(hashAlgorithm);
+            pool.put(hashAlgorithm, digest);
+        }
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * iText digest factory backed by cloned prototypes, for {@code PdfPKCS7}.
+     */
+    public IExternalDigest externalDigest() {
+        return this.externalDigest;
+    }
+
+    /**
+     * @param algorithm JCA signature algorithm, e.g. {@code SHA256withRSA}.
+     * @return This thread's signature for the algorithm. It must be initialized
+     * with {@code initSign}/{@code initVerify} before use.
+     */
+    public Signature signature(String algorithm) throws GeneralSecurityException {
+        Map<String, Signature> pool = this.signatures.get();
+        Signature signature = pool.get(algorithm);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm, PROVIDER);
+            pool.put(algorithm, signature);
+        }
+        return signature;
+    }
+
+    public CertificateFactory certificateFactory() {
+        return this.certificateFactories.get();
+    }
+
+    public X509Certificate decodeCertificate(byte[] encoded) throws CertificateException {
+        return (X509Certificate) this.certificateFactory().generateCertificate(new ByteArrayInputStream(encoded));
+    }
+
+    public X509Certificate toX509Certificate(X509CertificateHolder holder) throws CertificateException, IOException {
+        return this.decodeCertificate(holder.getEncoded());
+    }
+
+    public SignerInformationVerifier verifier(X509CertificateHolder certificate) throws OperatorCreationException, CertificateException {
+        return this.verifierBuilders.get().build(certificate);
+    }
+
+    private MessageDigest cloneDigest(String hashAlgorithm) throws GeneralSecurityException {
+        MessageDigest prototype = this.digestPrototypes.get(hashAlgorithm);
+        if (prototype == null) {
+            prototype = newMessageDigest(hashAlgorithm);
+            this.digestPrototypes.putIfAbsent(hashAlgorithm, prototype);
+        }
+        try {
+            return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return newMessageDigest(hashAlgorithm);
+        }
+    }
+
+    private static MessageDigest newMessageDigest(String hashAlgorithm) throws GeneralSecurityException {
+        String oid = DigestAlgorithms.getAllowedDigest(hashAlgorithm);
+        return MessageDigest.getInstance(oid != null ? oid : hashAlgorithm, PROVIDER);
+    }
+
+    private static CertificateFactory newCertificateFactory() {
+        try {
+            return CertificateFactory.getInstance(X509, PROVIDER);
+        } catch (CertificateException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
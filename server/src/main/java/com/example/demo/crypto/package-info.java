@@ -0,0 +1,5 @@
+package com.example.demo.crypto;
+/**
+ * This package is reserved for the JCA plumbing shared by the signing and
+ * validation code, so providers and primitives are set up in one place.
+ */
@@ -0,0 +1,23 @@
+package com.example.demo.dto.request;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The body request of the batch complete step through /batch/complete POST method.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCompleteSigningRequest {
+    /**
+     * The Base64 client signatures, in the same order as the hashes returned
+     * by the batch start step.
+     */
+    private List<String> signedHashes;
+}
@@ -0,0 +1,11 @@
+package com.example.demo.dto.response;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class BatchStartSigningResponse {
+  private List<String> documentNames;
+  private List<String> toSignHashes;
+}
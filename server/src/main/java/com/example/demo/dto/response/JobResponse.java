@@ -0,0 +1,19 @@
+package com.example.demo.dto.response;
+
+import java.time.Instant;
+
+import lombok.Data;
+
+@Data
+public class JobResponse {
+  private String id;
+  private String type;
+  private String status;
+  private String documentName;
+  private String error;
+  private Instant createdAt;
+  private Instant startedAt;
+  private Instant finishedAt;
+  /** When the job and its result are removed, once finished. */
+  private Instant expiresAt;
+}
@@ -0,0 +1,45 @@
+package com.example.demo.dto.response;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class SignatureInspection {
+    private String name;
+    private int revision;
+    private boolean coversWholeDocument;
+    private boolean integrityValid;
+
+    /**
+     * Page of the widget, null for signatures without a widget.
+     */
+    private Integer page;
+    private boolean visible;
+    private float[] position;
+
+    private String digestAlgorithm;
+    private String encryptionAlgorithm;
+    private String filterSubtype;
+    private String signedDigest;
+
+    private String signerName;
+    private String alternativeName;
+    private Date signDate;
+    private Date timestampDate;
+    private String timestampAuthority;
+    private Boolean timestampImprintValid;
+
+    private String location;
+    private String reason;
+    private String contactInfo;
+
+    private boolean certification;
+    private boolean fillInAllowed;
+    private boolean annotationsAllowed;
+    private List<String> fieldLocks = new ArrayList<>();
+
+    private String error;
+}
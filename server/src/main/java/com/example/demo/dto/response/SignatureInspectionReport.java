@@ -0,0 +1,12 @@
+package com.example.demo.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class SignatureInspectionReport {
+    private int totalRevisions;
+    private List<SignatureInspection> signatures = new ArrayList<>();
+}
@@ -0,0 +1,23 @@
+package com.example.demo.dto.response;
+
+import java.util.Date;
+
+import lombok.Data;
+
+@Data
+public class SignatureVerification {
+    private String name;
+    private int revision;
+    private boolean coversWholeDocument;
+    private String signerName;
+    private Date signDate;
+    private String reason;
+    private String location;
+    private boolean integrityValid;
+    private ValidationResult certificateValidation;
+    private String error;
+
+    public boolean isValid() {
+        return error == null && integrityValid && (certificateValidation == null || certificateValidation.isValid());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class SignatureVerificationReport {
+    private int totalRevisions;
+    private List<SignatureVerification> signatures = new ArrayList<>();
+
+    public boolean isValid() {
+        return !signatures.isEmpty() && signatures.stream().allMatch(SignatureVerification::isValid);
+    }
+}
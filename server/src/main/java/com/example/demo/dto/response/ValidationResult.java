@@ -3,6 +3,8 @@ package com.example.demo.dto.response;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -11,6 +13,9 @@ import lombok.Setter;
 public class ValidationResult {
   private List<String> successes = new ArrayList<>();
   private List<String> errors = new ArrayList<>();
+  /** Whether a check was cut short by an exception rather than failed. */
+  @JsonIgnore
+  private boolean incomplete;
 
   public void addSuccess(String message) {
       successes.add("Sucesso (" + message + ")");
@@ -20,6 +25,15 @@ public class ValidationResult {
       errors.add("Erro: " + message);
   }
 
+  /**
+   * Adds the error of a check that threw, so the result may be transient and
+   * must not be cached.
+   */
+  public void addFailure(String message) {
+      addError(message);
+      incomplete = true;
+  }
+
   public boolean isValid() {
       return errors.isEmpty();
   }
@@ -0,0 +1,78 @@
+package com.example.demo.execution;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.helpers.FutureHelper;
+
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+
+/**
+ * Runs the CPU bound part of a request on the PDF work pool when
+ * {@code signing.workers.offload} is set, which is the default in virtual
+ * thread mode: request threads are then cheap and unbounded, and only the
+ * pool, sized to the cores, decides how much PDF work runs at once. Work
+ * already running on the pool, such as one document of a batch, runs inline
+ * so a worker never waits for a task queued behind it.
+ */
+@Component
+public class PdfWorkDispatcher {
+    private static final ThreadLocal<Boolean> WORKER = new ThreadLocal<>();
+
+    private final AsyncTaskExecutor pdfWorkExecutor;
+
+    private final boolean offload;
+
+    public PdfWorkDispatcher(@Qualifier("pdfWorkExecutor") AsyncTaskExecutor pdfWorkExecutor,
+            @Value("${signing.workers.offload:false}") boolean offload) {
+        this.pdfWorkExecutor = pdfWorkExecutor;
+        this.offload = offload;
+    }
+
+    public <T> T run(Work<T> work) throws IOException, GeneralSecurityException {
+        if (!this.offload || isWorkerThread()) {
+            return work.call();
+        }
+        return FutureHelper.await(this.pdfWorkExecutor.submit(work::call));
+    }
+
+    /**
+     * @return Whether the current thread is one of the PDF work pool.
+     */
+    public static boolean isWorkerThread() {
+        return Boolean.TRUE.equals(WORKER.get());
+    }
+
+    /**
+     * Task decorator of the PDF work pool. Marks the worker threads and
+     * carries the submitter's thread locals over, so the phases observed on a
+     * worker are spans of the request that submitted them.
+     *
+     * @param snapshots Captures the thread locals of the submitting thread.
+     */
+    public static TaskDecorator decorator(ContextSnapshotFactory snapshots) {
+        return task -> {
+            ContextSnapshot snapshot = snapshots.captureAll();
+            return () -> {
+                WORKER.set(Boolean.TRUE);
+                try (ContextSnapshot.Scope scope = snapshot.setThreadLocals()) {
+                    task.run();
+                } finally {
+                    WORKER.remove();
+                }
+            };
+        };
+    }
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T call() throws IOException, GeneralSecurityException;
+    }
+}
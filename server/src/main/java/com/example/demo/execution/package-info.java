@@ -0,0 +1,5 @@
+package com.example.demo.execution;
+/**
+ * This package is reserved for the threading of the request handling, which
+ * keeps the CPU bound PDF work on the bounded PDF work pool.
+ */
@@ -0,0 +1,258 @@
+package com.example.demo.factory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.factory.SignatureAppearanceBuilder.StampType;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.font.PdfFontFactory.EmbeddingStrategy;
+import com.itextpdf.kernel.geom.Rectangle;
+
+/**
+ * Keeps everything {@link SignatureAppearanceBuilder} needs that does not depend
+ * on the document being signed: the parsed font program, the decoded stamp images
+ * and the computed layer 2 layouts.
+ *
+ * Layouts are cached in two levels. The geometry (stamp box, text box and line
+ * height) is cached per size, stamp and font size. The line breaks are cached per
+ * text line, so when only a few lines of the text change between signers (name,
+ * CPF, date) only those lines are wrapped again.
+ */
+@Component
+public class SignatureAppearanceCache {
+    private static final String FONT_PATH = "fonts/Arial.ttf";
+    private static final int MAX_TEMPLATES = 64;
+    private static final int MAX_WRAPPED_LINES = 1024;
+
+    /**
+     * Leading used for the appearance text, relative to the font size. Matches
+     * the default leading of an iText layout {@code Paragraph}.
+     */
+    private static final float LEADING_MULTIPLIER = 1.35f;
+    private static final float STAMP_WIDTH = 40f;
+    private static final float STAMP_MARGIN = 5f;
+
+    private volatile FontProgram fontProgram;
+
+    private final Map<StampType, ImageData> stamps = Collections.synchronizedMap(new EnumMap<>(StampType.class));
+
+    private final Map<TemplateKey, Layer2Template> templates = lruMap(MAX_TEMPLATES);
+
+    private final Map<LineKey, List<String>> wrappedLines = lruMap(MAX_WRAPPED_LINES);
+
+    /**
+     * Creates a document bound font from the cached font program. The program is
+     * parsed only once, but a {@link PdfFont} belongs to a single document.
+     */
+    public PdfFont createFont() {
+        return PdfFontFactory.createFont(this.getFontProgram(), PdfEncodings.WINANSI, EmbeddingStrategy.PREFER_EMBEDDED);
+    }
+
+    public FontProgram getFontProgram() {
+        FontProgram program = this.fontProgram;
+        if (program == null) {
+            synchronized (this) {
+                program = this.fontProgram;
+                if (program == null) {
+                    try {
+                        program = FontProgramFactory.createFont(readResource(FONT_PATH));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Could not load font " + FONT_PATH, e);
+                    }
+                    this.fontProgram = program;
+                }
+            }
+        }
+        return program;
+    }
+
+    public ImageData getStamp(StampType stampType) {
+        return this.stamps.computeIfAbsent(stampType, type -> {
+            String path = type.equals(StampType.Logo) ? "images/logo.png" : "images/icpbrasil.jpg";
+            try {
+                return ImageDataFactory.create(readResource(path));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load stamp " + path, e);
+            }
+        });
+    }
+
+    public Layer2Template getTemplate(float width, float height, StampType stampType, int fontSize) {
+        return this.templates.computeIfAbsent(new TemplateKey(width, height, stampType, fontSize), key -> {
+            ImageData stamp = this.getStamp(stampType);
+            FontProgram program = this.getFontProgram();
+
+            float stampHeight = stamp.getHeight() * STAMP_WIDTH / stamp.getWidth(); // Maintain aspect ratio
+            Rectangle stampRect = new Rectangle(
+                    width - STAMP_WIDTH - STAMP_MARGIN,
+                    (height - stampHeight) / 2,
+                    STAMP_WIDTH,
+                    stampHeight);
+
+            float leading = fontSize * LEADING_MULTIPLIER;
+            float ascent = program.getFontMetrics().getTypoAscender() * fontSize / 1000f;
+            float descent = program.getFontMetrics().getTypoDescender() * fontSize / 1000f;
+            float firstBaseline = height - ascent - (leading - (ascent - descent)) / 2;
+
+            return new Layer2Template(width - STAMP_WIDTH - STAMP_MARGIN, leading, firstBaseline, stampRect);
+        });
+    }
+
+    /**
+     * Breaks the text into the lines it takes within the given width, reusing
+     * the breaks of every line already seen.
+     */
+    public List<String> layoutText(String text, float textWidth, int fontSize) {
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\n", -1)) {
+            lines.addAll(this.wrappedLines.computeIfAbsent(new LineKey(line, textWidth, fontSize),
+                    key -> this.wrap(key.line.strip(), textWidth, fontSize)));
+        }
+        return lines;
+    }
+
+    private List<String> wrap(String line, float textWidth, int fontSize) {
+        FontProgram program = this.getFontProgram();
+        List<String> lines = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        float currentWidth = 0;
+        float spaceWidth = program.getWidth(' ') * fontSize / 1000f;
+
+        for (String word : line.split(" +")) {
+            float wordWidth = 0;
+            for (int i = 0; i < word.length(); i++) {
+                wordWidth += program.getWidth(word.charAt(i)) * fontSize / 1000f;
+            }
+            if (current.length() > 0 && currentWidth + spaceWidth + wordWidth > textWidth) {
+                lines.add(current.toString());
+                current.setLength(0);
+                currentWidth = 0;
+            }
+            if (current.length() > 0) {
+                current.append(' ');
+                currentWidth += spaceWidth;
+            }
+            current.append(word);
+            currentWidth += wordWidth;
+        }
+        lines.add(current.toString());
+
+        return Collections.unmodifiableList(lines);
+    }
+
+    private static byte[] readResource(String path) throws IOException {
+        try (InputStream stream = new ClassPathResource(path).getInputStream()) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static <K, V> Map<K, V> lruMap(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Precomputed geometry of the layer 2 content for one size, stamp and font size.
+     */
+    public static final class Layer2Template {
+        private final float textWidth;
+        private final float leading;
+        private final float firstBaseline;
+        private final Rectangle stampRect;
+
+        private Layer2Template(float textWidth, float leading, float firstBaseline, Rectangle stampRect) {
+            this.textWidth = textWidth;
+            this.leading = leading;
+            this.firstBaseline = firstBaseline;
+            this.stampRect = stampRect;
+        }
+
+        public float getTextWidth() {
+            return textWidth;
+        }
+
+        public float getLeading() {
+            return leading;
+        }
+
+        public float getFirstBaseline() {
+            return firstBaseline;
+        }
+
+        public Rectangle getStampRect() {
+            return stampRect.clone();
+        }
+    }
+
+    private static final class TemplateKey {
+        private final float width;
+        private final float height;
+        private final StampType stampType;
+        private final int fontSize;
+
+        private TemplateKey(float width, float height, StampType stampType, int fontSize) {
+            this.width = width;
+            this.height = height;
+            this.stampType = stampType;
+            this.fontSize = fontSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TemplateKey)) return false;
+            TemplateKey other = (TemplateKey) o;
+            return width == other.width && height == other.height
+                    && stampType == other.stampType && fontSize == other.fontSize;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(width, height, stampType, fontSize);
+        }
+    }
+
+    private static final class LineKey {
+        private final String line;
+        private final float textWidth;
+        private final int fontSize;
+
+        private LineKey(String line, float textWidth, int fontSize) {
+            this.line = line;
+            this.textWidth = textWidth;
+            this.fontSize = fontSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LineKey)) return false;
+            LineKey other = (LineKey) o;
+            return textWidth == other.textWidth && fontSize == other.fontSize && line.equals(other.line);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(line, textWidth, fontSize);
+        }
+    }
+}
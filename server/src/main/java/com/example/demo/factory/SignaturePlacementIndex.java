@@ -0,0 +1,268 @@
+package com.example.demo.factory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.demo.signature.SignatureConstraints;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfString;
+
+/**
+ * Where signature boxes can go in one document, built once instead of
+ * scanning the whole AcroForm for every signature.
+ *
+ * The field names are read once from the raw AcroForm tree to number new
+ * signature fields. The widgets of a page are read from its {@code /Annots}
+ * the first time the page is used and mapped onto a grid of signature sized
+ * cells, laid out left to right and bottom to top like the original fixed
+ * grid. Finding the next free cell is then a bit set lookup, and a requested
+ * box is only checked against the widgets registered in the cells it covers.
+ */
+public class SignaturePlacementIndex {
+    private final PdfDocument document;
+
+    private final Set<String> fieldNames;
+
+    private int fieldCounter;
+
+    private final Map<Integer, PageSlots> pages = new HashMap<>();
+
+    private SignaturePlacementIndex(PdfDocument document, Set<String> fieldNames, int fieldCounter) {
+        this.document = document;
+        this.fieldNames = fieldNames;
+        this.fieldCounter = fieldCounter;
+    }
+
+    public static SignaturePlacementIndex of(PdfDocument document) {
+        Set<String> fieldNames = new HashSet<>();
+        PdfDictionary acroForm = document.getCatalog().getPdfObject().getAsDictionary(PdfName.AcroForm);
+        if (acroForm != null) {
+            collectFieldNames(acroForm.getAsArray(PdfName.Fields), null, fieldNames, new HashSet<>());
+        }
+
+        int signatureFields = 0;
+        for (String name : fieldNames) {
+            if (name.startsWith(SignatureConstraints.FIELD_NAME)) {
+                signatureFields++;
+            }
+        }
+        return new SignaturePlacementIndex(document, fieldNames, signatureFields);
+    }
+
+    /**
+     * Reserves the name of the next signature field. Names follow the number of
+     * signature fields already present, skipping names that are taken.
+     */
+    public String nextFieldName() {
+        String name = SignatureConstraints.FIELD_NAME + this.fieldCounter++;
+        while (this.fieldNames.contains(name)) {
+            name = SignatureConstraints.FIELD_NAME + this.fieldCounter++;
+        }
+        this.fieldNames.add(name);
+        return name;
+    }
+
+    /**
+     * Reserves the first free grid cell of the page. When the page is full, the
+     * box goes where the fixed grid would have put it.
+     */
+    public Rectangle reserve(int pageNumber, float width, float height) {
+        PageSlots slots = this.slots(pageNumber, width, height);
+        int cell = slots.occupied.nextClearBit(0);
+        if (cell >= slots.capacity()) {
+            cell = slots.rects.size() % slots.capacity();
+        }
+        Rectangle rect = slots.cellRect(cell);
+        slots.add(rect);
+        return rect;
+    }
+
+    /**
+     * Reserves the requested box if it does not overlap an existing widget,
+     * otherwise the first free grid cell of the page.
+     */
+    public Rectangle reserve(int pageNumber, Rectangle requested) {
+        PageSlots slots = this.slots(pageNumber, requested.getWidth(), requested.getHeight());
+        if (slots.overlaps(requested)) {
+            return this.reserve(pageNumber, requested.getWidth(), requested.getHeight());
+        }
+        slots.add(requested);
+        return requested;
+    }
+
+    private PageSlots slots(int pageNumber, float width, float height) {
+        PageSlots slots = this.pages.get(pageNumber);
+        if (slots == null) {
+            PdfPage page = this.document.getPage(pageNumber);
+            slots = new PageSlots(page.getCropBox(), readWidgetRects(page));
+            this.pages.put(pageNumber, slots);
+        }
+        slots.useCellSize(width, height);
+        return slots;
+    }
+
+    private static List<Rectangle> readWidgetRects(PdfPage page) {
+        List<Rectangle> rects = new ArrayList<>();
+        PdfArray annots = page.getPdfObject().getAsArray(PdfName.Annots);
+        if (annots == null) {
+            return rects;
+        }
+        for (int i = 0; i < annots.size(); i++) {
+            PdfDictionary annot = annots.getAsDictionary(i);
+            if (annot == null || !PdfName.Widget.equals(annot.getAsName(PdfName.Subtype))) {
+                continue;
+            }
+            PdfArray rectArray = annot.getAsArray(PdfName.Rect);
+            if (rectArray != null && rectArray.size() == 4) {
+                Rectangle rect = rectArray.toRectangle();
+                if (rect.getWidth() > 0 && rect.getHeight() > 0) {
+                    rects.add(rect);
+                }
+            }
+        }
+        return rects;
+    }
+
+    private static void collectFieldNames(PdfArray fields, String parentName, Set<String> names, Set<PdfObject> visited) {
+        if (fields == null) {
+            return;
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            PdfDictionary field = fields.getAsDictionary(i);
+            if (field == null || !visited.add(field)) {
+                continue;
+            }
+            PdfString partialName = field.getAsString(PdfName.T);
+            String name = parentName;
+            if (partialName != null) {
+                name = parentName == null ? partialName.toUnicodeString() : parentName + "." + partialName.toUnicodeString();
+                names.add(name);
+            }
+            collectFieldNames(field.getAsArray(PdfName.Kids), name, names, visited);
+        }
+    }
+
+    private static boolean intersects(Rectangle a, Rectangle b) {
+        return a.getLeft() < b.getRight() && b.getLeft() < a.getRight()
+                && a.getBottom() < b.getTop() && b.getBottom() < a.getTop();
+    }
+
+    private static final class PageSlots {
+        private final Rectangle cropBox;
+        private final List<Rectangle> rects;
+        private float cellWidth;
+        private float cellHeight;
+        private int columns;
+        private int rows;
+        private BitSet occupied;
+        /** Widgets by the grid cells they cover. */
+        private Map<Integer, List<Rectangle>> cellRects;
+        /** Widgets not entirely within the grid, always checked. */
+        private List<Rectangle> outside;
+
+        private PageSlots(Rectangle cropBox, List<Rectangle> rects) {
+            this.cropBox = cropBox;
+            this.rects = rects;
+        }
+
+        private void useCellSize(float width, float height) {
+            if (this.occupied != null && width == this.cellWidth && height == this.cellHeight) {
+                return;
+            }
+            this.cellWidth = width;
+            this.cellHeight = height;
+            this.columns = Math.max(1, (int) Math.floor(this.cropBox.getWidth() / width));
+            this.rows = Math.max(1, (int) Math.floor(this.cropBox.getHeight() / height));
+            this.occupied = new BitSet(this.columns * this.rows);
+            this.cellRects = new HashMap<>();
+            this.outside = new ArrayList<>();
+            for (Rectangle rect : this.rects) {
+                this.mark(rect);
+            }
+        }
+
+        private boolean overlaps(Rectangle requested) {
+            for (Rectangle rect : this.outside) {
+                if (intersects(rect, requested)) {
+                    return true;
+                }
+            }
+            int[] cells = this.cellRange(requested);
+            if (cells == null) {
+                return false;
+            }
+            for (int row = cells[2]; row <= cells[3]; row++) {
+                int cell = this.occupied.nextSetBit(row * this.columns + cells[0]);
+                int end = row * this.columns + cells[1];
+                for (; cell >= 0 && cell <= end; cell = this.occupied.nextSetBit(cell + 1)) {
+                    for (Rectangle rect : this.cellRects.getOrDefault(cell, List.of())) {
+                        if (intersects(rect, requested)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private int capacity() {
+            return this.columns * this.rows;
+        }
+
+        private Rectangle cellRect(int cell) {
+            int column = cell % this.columns;
+            int row = cell / this.columns;
+            return new Rectangle(this.cropBox.getX() + column * this.cellWidth, this.cropBox.getY() + row * this.cellHeight,
+                    this.cellWidth, this.cellHeight);
+        }
+
+        private void add(Rectangle rect) {
+            this.rects.add(rect);
+            this.mark(rect);
+        }
+
+        private void mark(Rectangle rect) {
+            if (rect.getLeft() < this.cropBox.getX() || rect.getBottom() < this.cropBox.getY()
+                    || rect.getRight() > this.cropBox.getX() + this.columns * this.cellWidth
+                    || rect.getTop() > this.cropBox.getY() + this.rows * this.cellHeight) {
+                this.outside.add(rect);
+            }
+            int[] cells = this.cellRange(rect);
+            if (cells == null) {
+                return;
+            }
+            for (int row = cells[2]; row <= cells[3]; row++) {
+                this.occupied.set(row * this.columns + cells[0], row * this.columns + cells[1] + 1);
+                for (int column = cells[0]; column <= cells[1]; column++) {
+                    this.cellRects.computeIfAbsent(row * this.columns + column, cell -> new ArrayList<>(1)).add(rect);
+                }
+            }
+        }
+
+        /**
+         * @return The first and last column and row of the grid cells the
+         * rectangle covers, or null if it covers none.
+         */
+        private int[] cellRange(Rectangle rect) {
+            int firstColumn = Math.max(0, (int) Math.floor((rect.getLeft() - this.cropBox.getX()) / this.cellWidth));
+            int lastColumn = Math.min(this.columns - 1, (int) Math.ceil((rect.getRight() - this.cropBox.getX()) / this.cellWidth) - 1);
+            int firstRow = Math.max(0, (int) Math.floor((rect.getBottom() - this.cropBox.getY()) / this.cellHeight));
+            int lastRow = Math.min(this.rows - 1, (int) Math.ceil((rect.getTop() - this.cropBox.getY()) / this.cellHeight) - 1);
+            if (firstColumn > lastColumn || firstRow > lastRow) {
+                return null;
+            }
+            return new int[]{firstColumn, lastColumn, firstRow, lastRow};
+        }
+    }
+}
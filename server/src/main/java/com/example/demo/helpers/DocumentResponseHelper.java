@@ -0,0 +1,110 @@
+package com.example.demo.helpers;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.demo.storage.DocumentSource;
+
+public final class DocumentResponseHelper {
+    public static final MediaType ZIP = MediaType.parseMediaType("application/zip");
+
+    private DocumentResponseHelper() {}
+
+    /**
+     * Streams the document to the response body and releases it afterwards,
+     * so file backed documents are never copied into a byte array.
+     */
+    public static ResponseEntity<StreamingResponseBody> stream(DocumentSource document) {
+        return stream(document, MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    public static ResponseEntity<StreamingResponseBody> stream(DocumentSource document, MediaType contentType) {
+        StreamingResponseBody body = outputStream -> {
+            try (DocumentSource source = document; InputStream input = source.openStream()) {
+                input.transferTo(outputStream);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .contentLength(document.size())
+                .body(body);
+    }
+
+    /**
+     * Wraps the document as a resource for a multipart part. The document is
+     * released when the converter closes the stream after writing the part.
+     */
+    public static InputStreamResource resource(DocumentSource document) throws IOException {
+        InputStream input;
+        try {
+            input = document.openStream();
+        } catch (IOException | RuntimeException e) {
+            document.close();
+            throw e;
+        }
+        return new InputStreamResource(new FilterInputStream(input) {
+            @Override
+            public void close() throws IOException {
+                try (DocumentSource source = document) {
+                    super.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Streams the documents as a ZIP archive, one entry per document, and
+     * releases each document once written.
+     */
+    public static ResponseEntity<StreamingResponseBody> zip(List<String> names, List<DocumentSource> documents) {
+        StreamingResponseBody body = outputStream -> {
+            ZipOutputStream zip = new ZipOutputStream(outputStream);
+            try {
+                for (int i = 0; i < documents.size(); i++) {
+                    writeZipEntry(zip, zipEntryName(i, names.get(i)), documents.get(i));
+                }
+            } finally {
+                for (DocumentSource document : documents) {
+                    document.close();
+                }
+            }
+            zip.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(ZIP)
+                .body(body);
+    }
+
+    /**
+     * Writes a document as a ZIP entry and releases it.
+     */
+    public static void writeZipEntry(ZipOutputStream zip, String name, DocumentSource document) throws IOException {
+        try (DocumentSource source = document; InputStream input = source.openStream()) {
+            zip.putNextEntry(new ZipEntry(name));
+            input.transferTo(zip);
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * Entry name for the document at the given position, prefixed with its
+     * position so entries stay unique and ordered.
+     */
+    public static String zipEntryName(int index, String documentName) {
+        String fileName = StringUtils.getFilename(documentName);
+        if (!StringUtils.hasText(fileName)) {
+            fileName = "document.pdf";
+        }
+        return String.format("%03d-%s", index + 1, fileName);
+    }
+}
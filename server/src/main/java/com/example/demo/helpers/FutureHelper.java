@@ -0,0 +1,81 @@
+package com.example.demo.helpers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+public final class FutureHelper {
+    private FutureHelper() {}
+
+    /**
+     * Waits for all the futures and returns their results in order. If one of
+     * them fails the others are cancelled, the results already produced are
+     * handed to {@code discard} and the failure is rethrown as it was thrown by
+     * the task.
+     */
+    public static <T> List<T> awaitAll(List<Future<T>> futures, Consumer<T> discard) throws IOException, GeneralSecurityException {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discardAll(futures, results, discard);
+            throw new InterruptedIOException("Interrupted while waiting for the document tasks");
+        } catch (ExecutionException e) {
+            discardAll(futures, results, discard);
+            throw rethrow(e.getCause());
+        }
+    }
+
+    public static <T> List<T> awaitAll(List<Future<T>> futures) throws IOException, GeneralSecurityException {
+        return awaitAll(futures, result -> {});
+    }
+
+    public static <T> T await(Future<T> future) throws IOException, GeneralSecurityException {
+        return awaitAll(List.of(future)).get(0);
+    }
+
+    /**
+     * Rethrows a task failure with its original type when it is one of the
+     * checked exceptions of the signing API.
+     */
+    public static IOException rethrow(Throwable cause) throws GeneralSecurityException {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof GeneralSecurityException) {
+            throw (GeneralSecurityException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    private static <T> void discardAll(List<Future<T>> futures, List<T> results, Consumer<T> discard) {
+        results.forEach(discard);
+        for (int i = results.size(); i < futures.size(); i++) {
+            Future<T> future = futures.get(i);
+            if (!future.cancel(true) && future.isDone()) {
+                try {
+                    discard.accept(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // already failed, nothing to discard
+                }
+            }
+        }
+    }
+}
@@ -51,6 +51,24 @@ public final class Pkcs12FileHelper {
         return result;
     }
 
+    /**
+     * Reads the first private key entry (key and certificate chain) from a
+     * PKCS#12 stream, loading the keystore only once for both.
+     */
+    public static KeyStore.PrivateKeyEntry readFirstEntry(InputStream keyStoreStream, char[] ksPass, char[] keyPass) throws KeyStoreException, IOException, CertificateException, NoSuchAlgorithmException, UnrecoverableKeyException {
+        KeyStore p12 = KeyStore.getInstance("pkcs12");
+        p12.load(keyStoreStream, ksPass);
+
+        Enumeration<String> aliases = p12.aliases();
+        while (aliases.hasMoreElements()) {
+            String alias = aliases.nextElement();
+            if (p12.isKeyEntry(alias)) {
+                return new KeyStore.PrivateKeyEntry((PrivateKey) p12.getKey(alias, keyPass), p12.getCertificateChain(alias));
+            }
+        }
+        return null;
+    }
+
     public static KeyStore initStore(String p12FileName, char[] ksPass) throws KeyStoreException, IOException, CertificateException, NoSuchAlgorithmException, NoSuchProviderException {
         try (InputStream keyStoreStream = new ClassPathResource(p12FileName).getInputStream()) {
             KeyStore p12 = KeyStore.getInstance("PKCS12", "BC");
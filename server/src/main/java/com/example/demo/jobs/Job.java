@@ -0,0 +1,25 @@
+package com.example.demo.jobs;
+
+import java.time.Instant;
+
+import lombok.Data;
+
+/**
+ * State of a job, persisted as the {@code job.json} of its directory.
+ */
+@Data
+public class Job {
+    private String id;
+    private JobType type;
+    private JobStatus status;
+    private String documentName;
+    /** Local signing only, null for the configured default. */
+    private Boolean appendMode;
+    private String callbackUrl;
+    /** Runs started, including the ones interrupted by a restart. */
+    private int attempts;
+    private String error;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,132 @@
+package com.example.demo.jobs;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Posts the final state of a job to the callback URL given at submission,
+ * sharing one keep-alive client between the callbacks.
+ *
+ * Callback URLs come from clients, so they are restricted: when
+ * {@code signing.jobs.callback-allowed-hosts} is set, only those hosts (or,
+ * for entries starting with a dot, their subdomains) are called; otherwise
+ * any host is, as long as none of its addresses is loopback, link-local,
+ * private or otherwise not public. Hosts are checked at submission and again
+ * right before the call.
+ *
+ * The address check resolves the host itself and the HTTP client resolves it
+ * again to connect, so a host whose DNS answer changes in between (DNS
+ * rebinding) can still reach an internal address. Production deployments
+ * must set the allow-list; a warning is logged at startup when it is empty.
+ */
+@Component
+public class JobCallbackNotifier {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobCallbackNotifier.class);
+
+    private final HttpClient httpClient;
+
+    private final Duration timeout;
+
+    private final List<String> allowedHosts;
+
+    public JobCallbackNotifier(@Value("${signing.jobs.callback-timeout:PT10S}") Duration timeout,
+            @Value("${signing.jobs.callback-allowed-hosts:}") List<String> allowedHosts) {
+        this.timeout = timeout;
+        this.allowedHosts = allowedHosts.stream()
+                .map(String::trim)
+                .filter(host -> !host.isEmpty())
+                .map(host -> host.toLowerCase(Locale.ROOT))
+                .toList();
+        if (this.allowedHosts.isEmpty()) {
+            LOGGER.warn("signing.jobs.callback-allowed-hosts is empty, job callbacks are only checked against private addresses");
+        }
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * @throws IllegalArgumentException When the URL is not an absolute HTTP(S)
+     * URL, or its host is not allowed or does not resolve to public addresses.
+     */
+    public void checkUrl(String url) {
+        URI uri = URI.create(url);
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            throw new IllegalArgumentException("The callback URL must be an absolute http or https URL");
+        }
+        String host = uri.getHost().toLowerCase(Locale.ROOT);
+        if (!this.allowedHosts.isEmpty()) {
+            if (!this.isAllowed(host)) {
+                throw new IllegalArgumentException("The callback host " + host + " is not allowed");
+            }
+            return;
+        }
+
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(host);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The callback host " + host + " cannot be resolved");
+        }
+        for (InetAddress address : addresses) {
+            if (!isPublic(address)) {
+                throw new IllegalArgumentException("The callback host " + host + " is not a public address");
+            }
+        }
+    }
+
+    public void notify(String url, byte[] body) throws IOException {
+        this.checkUrl(url);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(this.timeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        try {
+            HttpResponse<Void> response = this.httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("Callback " + url + " answered HTTP " + response.statusCode());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling back " + url, e);
+        }
+    }
+
+    private boolean isAllowed(String host) {
+        for (String allowed : this.allowedHosts) {
+            if (allowed.startsWith(".") ? host.endsWith(allowed) : host.equals(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            // Carrier grade NAT, 100.64.0.0/10
+            return !((bytes[0] & 0xff) == 100 && (bytes[1] & 0xc0) == 64);
+        }
+        // Unique local IPv6 addresses, fc00::/7
+        return (bytes[0] & 0xfe) != 0xfc;
+    }
+}
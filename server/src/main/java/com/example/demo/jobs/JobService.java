@@ -0,0 +1,322 @@
+package com.example.demo.jobs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.admission.MemoryBudget;
+import com.example.demo.dto.response.JobResponse;
+import com.example.demo.dto.response.SignatureVerificationReport;
+import com.example.demo.services.SignatureService;
+import com.example.demo.services.ValidationServicee;
+import com.example.demo.storage.ByteArrayDocument;
+import com.example.demo.storage.DocumentSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs the local signing and validation flows as jobs on the job worker
+ * pool, independently of the connection of the client, which polls the job
+ * or is called back and then downloads the result.
+ *
+ * The state of each job is kept on disk by the {@link JobStore}, the pool
+ * queue only holds the ids. On startup the queued jobs are queued again and
+ * the jobs that were running are restarted, up to
+ * {@code signing.jobs.max-attempts} runs. Finished jobs are removed with
+ * their result {@code signing.jobs.ttl} after they finished.
+ *
+ * A job runs within the {@link MemoryBudget} shared with the document
+ * requests, reserving the size of its document times the cost factor of its
+ * flow. Unlike a request, a job waits for room as long as it takes.
+ */
+@Service
+public class JobService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobService.class);
+
+    private final JobStore jobStore;
+
+    private final SignatureService signatureService;
+
+    private final ValidationServicee validationService;
+
+    private final JobCallbackNotifier callbackNotifier;
+
+    private final ObjectMapper objectMapper;
+
+    private final AsyncTaskExecutor jobWorkerExecutor;
+
+    private final AsyncTaskExecutor jobCallbackExecutor;
+
+    private final MemoryBudget memoryBudget;
+
+    private final char[] password;
+
+    private final Duration maxWait;
+
+    private final long minimumCost;
+
+    private final double localFactor;
+
+    private final double validateFactor;
+
+    private final Duration timeToLive;
+
+    private final int maxAttempts;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry;
+
+    public JobService(JobStore jobStore, SignatureService signatureService, ValidationServicee validationService,
+            JobCallbackNotifier callbackNotifier, ObjectMapper objectMapper,
+            @Qualifier("jobWorkerExecutor") AsyncTaskExecutor jobWorkerExecutor,
+            @Qualifier("jobCallbackExecutor") AsyncTaskExecutor jobCallbackExecutor, MeterRegistry meterRegistry,
+            MemoryBudget memoryBudget,
+            @Value("${signing.local.key-password}") String password,
+            @Value("${signing.jobs.ttl:PT24H}") Duration timeToLive,
+            @Value("${signing.jobs.max-attempts:3}") int maxAttempts,
+            @Value("${signing.admission.max-wait:PT10S}") Duration maxWait,
+            @Value("${signing.admission.minimum-cost:1MB}") DataSize minimumCost,
+            @Value("${signing.admission.cost-factor.local:3}") double localFactor,
+            @Value("${signing.admission.cost-factor.validate:2}") double validateFactor) {
+        this.jobStore = jobStore;
+        this.signatureService = signatureService;
+        this.validationService = validationService;
+        this.callbackNotifier = callbackNotifier;
+        this.objectMapper = objectMapper;
+        this.jobWorkerExecutor = jobWorkerExecutor;
+        this.jobCallbackExecutor = jobCallbackExecutor;
+        this.memoryBudget = memoryBudget;
+        this.password = password.toCharArray();
+        this.maxWait = maxWait;
+        this.minimumCost = minimumCost.toBytes();
+        this.localFactor = localFactor;
+        this.validateFactor = validateFactor;
+        this.meterRegistry = meterRegistry;
+        this.timeToLive = timeToLive;
+        this.maxAttempts = maxAttempts;
+        Gauge.builder("signing.jobs.queued", this.queued, AtomicInteger::get)
+                .description("Jobs waiting for a job worker")
+                .register(meterRegistry);
+    }
+
+    public Job submitLocalSigning(MultipartFile document, Boolean appendMode, String callbackUrl) throws IOException {
+        Job job = this.newJob(JobType.LOCAL_SIGNING, document, callbackUrl);
+        job.setAppendMode(appendMode);
+        return this.submit(job, document);
+    }
+
+    public Job submitValidation(MultipartFile document, String callbackUrl) throws IOException {
+        return this.submit(this.newJob(JobType.VALIDATION, document, callbackUrl), document);
+    }
+
+    /**
+     * @return The job, or null when it is unknown or expired.
+     */
+    public Job find(String id) throws IOException {
+        return this.jobStore.find(id);
+    }
+
+    /**
+     * @return The result of a succeeded job. The caller must close it.
+     */
+    public DocumentSource openResult(Job job) {
+        return this.jobStore.openResult(job);
+    }
+
+    public JobResponse toResponse(Job job) {
+        JobResponse response = new JobResponse();
+        response.setId(job.getId());
+        response.setType(job.getType().name());
+        response.setStatus(job.getStatus().name());
+        response.setDocumentName(job.getDocumentName());
+        response.setError(job.getError());
+        response.setCreatedAt(job.getCreatedAt());
+        response.setStartedAt(job.getStartedAt());
+        response.setFinishedAt(job.getFinishedAt());
+        if (job.getFinishedAt() != null) {
+            response.setExpiresAt(job.getFinishedAt().plus(this.timeToLive));
+        }
+        return response;
+    }
+
+    /**
+     * Queues again the jobs left by the previous run: the queued ones as they
+     * were, the running ones as a new attempt.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() throws IOException {
+        this.jobStore.purgeIncomplete();
+        for (Job job : this.jobStore.findAll()) {
+            if (job.getStatus() == JobStatus.RUNNING) {
+                if (job.getAttempts() >= this.maxAttempts) {
+                    this.finish(job, JobStatus.FAILED, "Interrupted " + job.getAttempts() + " times by a restart");
+                    continue;
+                }
+                LOGGER.info("Restarting job {} interrupted by a restart", job.getId());
+                job.setStatus(JobStatus.QUEUED);
+                job.setStartedAt(null);
+                this.jobStore.save(job);
+            }
+            if (job.getStatus() == JobStatus.QUEUED) {
+                this.dispatch(job.getId());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${signing.jobs.cleanup-interval:PT5M}")
+    public void purgeExpired() throws IOException {
+        Instant now = Instant.now();
+        for (Job job : this.jobStore.findAll()) {
+            if (job.getFinishedAt() != null && job.getFinishedAt().plus(this.timeToLive).isBefore(now)) {
+                this.jobStore.delete(job.getId());
+            }
+        }
+    }
+
+    private Job newJob(JobType type, MultipartFile document, String callbackUrl) {
+        if (StringUtils.hasText(callbackUrl)) {
+            try {
+                this.callbackNotifier.checkUrl(callbackUrl);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
+        Job job = new Job();
+        job.setType(type);
+        job.setStatus(JobStatus.QUEUED);
+        job.setDocumentName(StringUtils.getFilename(document.getOriginalFilename()));
+        job.setCallbackUrl(StringUtils.hasText(callbackUrl) ? callbackUrl : null);
+        job.setCreatedAt(Instant.now());
+        return job;
+    }
+
+    private Job submit(Job job, MultipartFile document) throws IOException {
+        this.jobStore.create(job, document);
+        this.dispatch(job.getId());
+        return job;
+    }
+
+    private void dispatch(String id) {
+        this.queued.incrementAndGet();
+        this.jobWorkerExecutor.execute(() -> {
+            this.queued.decrementAndGet();
+            this.run(id);
+        });
+    }
+
+    private void run(String id) {
+        Job job;
+        try {
+            job = this.jobStore.find(id);
+            if (job == null || job.getStatus() != JobStatus.QUEUED) {
+                return;
+            }
+            job.setStatus(JobStatus.RUNNING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setStartedAt(Instant.now());
+            this.jobStore.save(job);
+        } catch (IOException e) {
+            LOGGER.error("Cannot start job {}", id, e);
+            return;
+        }
+
+        try {
+            this.execute(job);
+            this.finish(job, JobStatus.SUCCEEDED, null);
+        } catch (Exception e) {
+            LOGGER.warn("Job {} failed", id, e);
+            try {
+                this.finish(job, JobStatus.FAILED, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            } catch (IOException saveFailure) {
+                LOGGER.error("Cannot record the failure of job {}", id, saveFailure);
+            }
+        }
+    }
+
+    private void execute(Job job) throws IOException, GeneralSecurityException {
+        try (DocumentSource input = this.jobStore.openInput(job)) {
+            MemoryBudget.Reservation reservation = this.reserve(job, input.size());
+            try {
+                if (job.getType() == JobType.LOCAL_SIGNING) {
+                    try (DocumentSource signed = job.getAppendMode() == null
+                            ? this.signatureService.locallySign(input, this.password)
+                            : this.signatureService.locallySign(input, this.password, job.getAppendMode())) {
+                        this.jobStore.writeResult(job, signed);
+                    }
+                } else {
+                    SignatureVerificationReport report = this.validationService.verifySignaturesInParallel(input);
+                    this.jobStore.writeResult(job, new ByteArrayDocument(this.objectMapper.writeValueAsBytes(report)));
+                }
+            } finally {
+                reservation.release();
+            }
+        }
+    }
+
+    /**
+     * Waits for room in the memory budget, estimated the same way as the
+     * document requests.
+     */
+    private MemoryBudget.Reservation reserve(Job job, long size) throws IOException {
+        double factor = job.getType() == JobType.LOCAL_SIGNING ? this.localFactor : this.validateFactor;
+        long cost = (long) (Math.max(size, this.minimumCost) * factor);
+        try {
+            MemoryBudget.Reservation reservation;
+            while ((reservation = this.memoryBudget.reserve(cost, this.maxWait)) == null) {
+                // The budget was full or too many were waiting, a job has no client to reject
+                Thread.sleep(this.maxWait.toMillis());
+            }
+            return reservation;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for room in the memory budget");
+        }
+    }
+
+    private void finish(Job job, JobStatus status, String error) throws IOException {
+        job.setStatus(status);
+        job.setError(error);
+        job.setFinishedAt(Instant.now());
+        this.jobStore.save(job);
+        Counter.builder("signing.jobs")
+                .tag("type", job.getType().name().toLowerCase())
+                .tag("result", status.name().toLowerCase())
+                .description("Jobs finished")
+                .register(this.meterRegistry)
+                .increment();
+
+        if (job.getCallbackUrl() != null) {
+            // Sent from its own pool, so a slow callback does not hold up a job worker
+            this.jobCallbackExecutor.execute(() -> {
+                try {
+                    this.callbackNotifier.notify(job.getCallbackUrl(), this.objectMapper.writeValueAsBytes(this.toResponse(job)));
+                } catch (IOException | RuntimeException e) {
+                    // The job stays available to polling
+                    LOGGER.warn("Callback of job {} to {} failed: {}", job.getId(), job.getCallbackUrl(), e.getMessage());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.jobs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.demo.storage.DocumentSource;
+import com.example.demo.storage.FileDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps each job in its own directory: {@code job.json} for its state, the
+ * uploaded document and, once it succeeded, its result. Every file is
+ * written under a temporary name and moved in place, and a job directory is
+ * only published once complete, so a crash never leaves a job half written.
+ */
+@Component
+public class JobStore {
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final String STATE_FILE = "job.json";
+    private static final String INPUT_FILE = "input.pdf";
+    private static final String INCOMPLETE_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    private final ObjectMapper objectMapper;
+
+    public JobStore(ObjectMapper objectMapper,
+            @Value("${signing.jobs.directory:${java.io.tmpdir}/signing-jobs}") String directory) throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = Files.createDirectories(Path.of(directory));
+    }
+
+    /**
+     * Stores a new job with its document, the job gets its id here.
+     */
+    public Job create(Job job, MultipartFile document) throws IOException {
+        job.setId(UUID.randomUUID().toString());
+        Path incomplete = Files.createDirectory(this.directory.resolve(job.getId() + INCOMPLETE_SUFFIX));
+        try {
+            // Multipart parts are already on disk, this usually just moves the file
+            document.transferTo(incomplete.resolve(INPUT_FILE));
+            this.objectMapper.writeValue(incomplete.resolve(STATE_FILE).toFile(), job);
+            Files.move(incomplete, this.resolve(job.getId()), StandardCopyOption.ATOMIC_MOVE);
+            return job;
+        } catch (IOException | RuntimeException e) {
+            deleteRecursively(incomplete);
+            throw e;
+        }
+    }
+
+    public void save(Job job) throws IOException {
+        Path jobDirectory = this.resolve(job.getId());
+        Path temporary = Files.createTempFile(jobDirectory, "job-", INCOMPLETE_SUFFIX);
+        try {
+            this.objectMapper.writeValue(temporary.toFile(), job);
+            Files.move(temporary, jobDirectory.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @return The job, or null when the id is unknown or malformed.
+     */
+    public Job find(String id) throws IOException {
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            return null;
+        }
+        try {
+            return this.objectMapper.readValue(this.resolve(id).resolve(STATE_FILE).toFile(), Job.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            if (!Files.exists(this.resolve(id))) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return Every published job, oldest first.
+     */
+    public List<Job> findAll() throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(this.directory)) {
+            for (Path jobDirectory : directories) {
+                Job job = this.find(jobDirectory.getFileName().toString());
+                if (job != null) {
+                    jobs.add(job);
+                }
+            }
+        }
+        jobs.sort(Comparator.comparing(Job::getCreatedAt));
+        return jobs;
+    }
+
+    public DocumentSource openInput(Job job) {
+        return new FileDocument(this.resolve(job.getId()).resolve(INPUT_FILE), false);
+    }
+
+    public DocumentSource openResult(Job job) {
+        return new FileDocument(this.resolve(job.getId()).resolve(job.getType().getResultFileName()), false);
+    }
+
+    public void writeResult(Job job, DocumentSource result) throws IOException {
+        Path jobDirectory = this.resolve(job.getId());
+        Path temporary = Files.createTempFile(jobDirectory, "result-", INCOMPLETE_SUFFIX);
+        try {
+            try (InputStream input = result.openStream(); OutputStream output = Files.newOutputStream(temporary)) {
+                input.transferTo(output);
+            }
+            Files.move(temporary, jobDirectory.resolve(job.getType().getResultFileName()),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public void delete(String id) throws IOException {
+        deleteRecursively(this.resolve(id));
+    }
+
+    /**
+     * Removes the jobs whose creation was interrupted before they were
+     * published, and the temporary files of the ones that were running.
+     */
+    public void purgeIncomplete() throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.directory)) {
+            for (Path entry : entries) {
+                if (entry.getFileName().toString().endsWith(INCOMPLETE_SUFFIX)) {
+                    deleteRecursively(entry);
+                } else if (Files.isDirectory(entry)) {
+                    try (DirectoryStream<Path> temporaries = Files.newDirectoryStream(entry, "*" + INCOMPLETE_SUFFIX)) {
+                        for (Path temporary : temporaries) {
+                            Files.deleteIfExists(temporary);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private Path resolve(String id) {
+        return this.directory.resolve(id);
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path entry : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.jobs;
+
+import org.springframework.http.MediaType;
+
+public enum JobType {
+    /** Local signing of the uploaded document, the result is the signed PDF. */
+    LOCAL_SIGNING("result.pdf", MediaType.APPLICATION_OCTET_STREAM),
+    /** Verification of every signature of the document, the result is the JSON report. */
+    VALIDATION("result.json", MediaType.APPLICATION_JSON);
+
+    private final String resultFileName;
+
+    private final MediaType resultMediaType;
+
+    private JobType(String resultFileName, MediaType resultMediaType) {
+        this.resultFileName = resultFileName;
+        this.resultMediaType = resultMediaType;
+    }
+
+    public String getResultFileName() {
+        return resultFileName;
+    }
+
+    public MediaType getResultMediaType() {
+        return resultMediaType;
+    }
+}
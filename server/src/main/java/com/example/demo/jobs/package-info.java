@@ -0,0 +1,6 @@
+package com.example.demo.jobs;
+/**
+ * This package is reserved for the asynchronous jobs, which run the signing
+ * and validation flows outside of the HTTP request and keep their state on
+ * disk.
+ */
@@ -0,0 +1,141 @@
+package com.example.demo.observability;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Observes the phases of the signing and validation flows. Each phase is a
+ * {@code signing.phase} observation tagged with its flow and phase, which the
+ * actuator turns into a timer and, with a tracer on the classpath, into a
+ * span named after both. Phases nest: the digest and the CMS build of a local
+ * signature run within its embed phase, so their spans are children of it.
+ *
+ * The size and signature count of the documents going through each flow are
+ * kept in the {@code signing.document.size} and
+ * {@code signing.document.signatures} histograms.
+ */
+@Component
+public class SigningObservations {
+    public static final String PHASE_OBSERVATION = "signing.phase";
+
+    private static final double MAX_DOCUMENT_SIZE = 256.0 * 1024 * 1024;
+
+    private final ObservationRegistry observationRegistry;
+
+    private final Map<Flow, DistributionSummary> documentSizes = new EnumMap<>(Flow.class);
+
+    private final Map<Flow, DistributionSummary> signatureCounts = new EnumMap<>(Flow.class);
+
+    public SigningObservations(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
+        for (Flow flow : Flow.values()) {
+            this.documentSizes.put(flow, DistributionSummary.builder("signing.document.size")
+                    .tag("flow", flow.getTag())
+                    .baseUnit("bytes")
+                    .description("Size of the documents going through the flow")
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1024.0)
+                    .maximumExpectedValue(MAX_DOCUMENT_SIZE)
+                    .register(meterRegistry));
+            this.signatureCounts.put(flow, DistributionSummary.builder("signing.document.signatures")
+                    .tag("flow", flow.getTag())
+                    .description("Signatures in the documents going through the flow, the new one included")
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(64.0)
+                    .register(meterRegistry));
+        }
+    }
+
+    public <T> T observe(Flow flow, Phase phase, PhaseCallable<T> callable) throws IOException, GeneralSecurityException {
+        Observation observation = Observation.createNotStarted(PHASE_OBSERVATION, this.observationRegistry)
+                .contextualName(flow.getTag() + " " + phase.getTag())
+                .lowCardinalityKeyValue("flow", flow.getTag())
+                .lowCardinalityKeyValue("phase", phase.getTag())
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            return callable.call();
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    public void observe(Flow flow, Phase phase, PhaseRunnable runnable) throws IOException, GeneralSecurityException {
+        this.observe(flow, phase, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    public void recordDocumentSize(Flow flow, long size) {
+        this.documentSizes.get(flow).record(size);
+    }
+
+    public void recordSignatureCount(Flow flow, int signatures) {
+        this.signatureCounts.get(flow).record(signatures);
+    }
+
+    public static enum Flow {
+        LOCAL("local"),
+        REMOTE_START("remote-start"),
+        REMOTE_COMPLETE("remote-complete"),
+        VALIDATE("validate");
+
+        private final String tag;
+
+        private Flow(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    public static enum Phase {
+        /** Receiving the uploaded document. */
+        READ("multipart-read"),
+        /** Opening the document and reading its signatures. */
+        PARSE("pdf-parse"),
+        APPEARANCE("appearance"),
+        /** Hashing the byte ranges around the signature placeholder. */
+        DIGEST("placeholder-digest"),
+        CMS("cms-build"),
+        /** Writing the document with its signature container. */
+        EMBED("embed"),
+        SIGNATURE_VALUE("signature-value"),
+        CERTIFICATE_CHAIN("certificate-chain");
+
+        private final String tag;
+
+        private Phase(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    @FunctionalInterface
+    public interface PhaseCallable<T> {
+        T call() throws IOException, GeneralSecurityException;
+    }
+
+    @FunctionalInterface
+    public interface PhaseRunnable {
+        void run() throws IOException, GeneralSecurityException;
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.demo.observability;
+/**
+ * This package is reserved for the metrics and tracing of the signing and
+ * validation pipelines, so every phase is measured and named the same way.
+ */
@@ -0,0 +1,264 @@
+package com.example.demo.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.demo.helpers.DocumentResponseHelper;
+import com.example.demo.storage.DocumentBuffers;
+import com.example.demo.storage.DocumentSource;
+import com.example.demo.storage.SizeLimitedInputStream;
+
+/**
+ * Signs many documents with the server key in one request. Documents are
+ * signed on the PDF work pool, at most {@code signing.bulk.max-in-flight} at a
+ * time, and each signed document is written to the output ZIP as soon as it is
+ * done, so neither the input nor the output batch is ever held as a whole.
+ *
+ * A document that fails to sign gets an {@code .error.txt} entry with the
+ * reason instead of its signed copy; the rest of the batch goes on.
+ */
+@Service
+public class BulkSigningService {
+    private static final String ERROR_SUFFIX = ".error.txt";
+
+    private final SignatureService signatureService;
+
+    private final DocumentBuffers documentBuffers;
+
+    private final AsyncTaskExecutor pdfWorkExecutor;
+
+    private final int maxInFlight;
+
+    private final long maxBodySize;
+
+    private final long maxEntrySize;
+
+    private final long maxTotalSize;
+
+    private final int maxEntries;
+
+    public BulkSigningService(SignatureService signatureService, DocumentBuffers documentBuffers,
+            @Qualifier("pdfWorkExecutor") AsyncTaskExecutor pdfWorkExecutor,
+            @Value("${signing.bulk.max-in-flight:0}") int maxInFlight,
+            @Value("${spring.servlet.multipart.max-request-size:150MB}") DataSize maxBodySize,
+            @Value("${spring.servlet.multipart.max-file-size:150MB}") DataSize maxEntrySize,
+            @Value("${signing.bulk.max-total-size:1GB}") DataSize maxTotalSize,
+            @Value("${signing.bulk.max-entries:1000}") int maxEntries) {
+        this.signatureService = signatureService;
+        this.documentBuffers = documentBuffers;
+        this.pdfWorkExecutor = pdfWorkExecutor;
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : 2 * Runtime.getRuntime().availableProcessors();
+        this.maxBodySize = maxBodySize.toBytes();
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.maxTotalSize = maxTotalSize.toBytes();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Signs the uploaded files, writing the signed ZIP to the output.
+     */
+    public void signAll(List<MultipartFile> files, char[] password, OutputStream output) throws IOException {
+        try (Batch batch = new Batch(password, output)) {
+            for (MultipartFile file : files) {
+                DocumentSource document;
+                try {
+                    document = this.documentBuffers.receive(file);
+                } catch (IOException e) {
+                    batch.fail(file.getOriginalFilename(), e);
+                    continue;
+                }
+                batch.submit(file.getOriginalFilename(), document);
+            }
+        }
+    }
+
+    /**
+     * Signs every PDF in the ZIP read from the input, writing the signed ZIP to
+     * the output. Entries are read one by one as the batch progresses.
+     *
+     * An entry larger than {@code spring.servlet.multipart.max-file-size} gets
+     * an error entry and is skipped. When the ZIP body, the decompressed entries
+     * as a whole or the number of entries exceed their limits, the batch stops
+     * there with an error entry and nothing more is read.
+     */
+    public void signAll(InputStream zipInput, char[] password, OutputStream output) throws IOException {
+        try (Batch batch = new Batch(password, output)) {
+            SizeLimitedInputStream body = new SizeLimitedInputStream(zipInput, this.maxBodySize, "ZIP body");
+            ZipInputStream zip = new ZipInputStream(body);
+            SizeLimitedInputStream inflated = new SizeLimitedInputStream(zip, this.maxTotalSize, "Decompressed ZIP");
+            int entries = 0;
+            ZipEntry entry = null;
+            try {
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    if (++entries > this.maxEntries) {
+                        throw new IOException("ZIP holds more than " + this.maxEntries + " entries");
+                    }
+                    SizeLimitedInputStream entryStream = new SizeLimitedInputStream(inflated, this.maxEntrySize, "ZIP entry");
+                    DocumentSource document;
+                    try {
+                        document = this.documentBuffers.receive(entryStream);
+                    } catch (IOException e) {
+                        if (!entryStream.isExceeded() || inflated.isExceeded()) {
+                            throw e;
+                        }
+                        batch.fail(entry.getName(), e);
+                        // skip the rest of the entry, still counting it in the total
+                        inflated.transferTo(OutputStream.nullOutputStream());
+                        continue;
+                    }
+                    batch.submit(entry.getName(), document);
+                }
+            } catch (IOException e) {
+                if (!body.isExceeded() && !inflated.isExceeded() && entries <= this.maxEntries) {
+                    throw e;
+                }
+                batch.fail(entry != null ? entry.getName() : "zip", e);
+            }
+        }
+    }
+
+    private static final class Result {
+        private final int index;
+        private final String name;
+        private final DocumentSource signed;
+        private final Exception error;
+
+        private Result(int index, String name, DocumentSource signed, Exception error) {
+            this.index = index;
+            this.name = name;
+            this.signed = signed;
+            this.error = error;
+        }
+    }
+
+    /**
+     * One bulk run: submits documents to the pool and drains the finished ones
+     * into the output ZIP. Only used from the thread writing the response.
+     */
+    private final class Batch implements Closeable {
+        private final char[] password;
+        private final ZipOutputStream zip;
+        private final ExecutorCompletionService<Result> completion;
+        private int submitted;
+        private int inFlight;
+        private boolean broken;
+
+        private Batch(char[] password, OutputStream output) {
+            this.password = password;
+            this.zip = new ZipOutputStream(output);
+            this.completion = new ExecutorCompletionService<>(pdfWorkExecutor);
+        }
+
+        private void submit(String name, DocumentSource document) throws IOException {
+            while (this.inFlight >= maxInFlight) {
+                this.drainOne();
+            }
+            int index = this.submitted++;
+            this.completion.submit(() -> {
+                try (DocumentSource source = document) {
+                    return new Result(index, name, signatureService.locallySign(source, this.password), null);
+                } catch (Exception e) {
+                    return new Result(index, name, null, e);
+                }
+            });
+            this.inFlight++;
+
+            Result done;
+            while ((done = this.pollCompleted()) != null) {
+                this.write(done);
+            }
+        }
+
+        private void fail(String name, Exception error) throws IOException {
+            this.write(new Result(this.submitted++, name, null, error));
+        }
+
+        private Result pollCompleted() throws IOException {
+            Future<Result> future = this.completion.poll();
+            return future == null ? null : this.resultOf(future);
+        }
+
+        private void drainOne() throws IOException {
+            try {
+                this.write(this.resultOf(this.completion.take()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the bulk signing tasks");
+            }
+        }
+
+        private Result resultOf(Future<Result> future) throws IOException {
+            this.inFlight--;
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the bulk signing tasks");
+            } catch (ExecutionException e) {
+                // tasks catch their own failures, this is not expected
+                throw new IOException(e.getCause());
+            }
+        }
+
+        private void write(Result result) throws IOException {
+            if (this.broken) {
+                // the output failed, just release what is still coming in
+                if (result.signed != null) {
+                    result.signed.close();
+                }
+                return;
+            }
+            try {
+                this.writeEntry(result);
+            } catch (IOException e) {
+                this.broken = true;
+                throw e;
+            }
+        }
+
+        private void writeEntry(Result result) throws IOException {
+            String entryName = DocumentResponseHelper.zipEntryName(result.index, result.name);
+            if (result.error == null) {
+                DocumentResponseHelper.writeZipEntry(this.zip, entryName, result.signed);
+                return;
+            }
+            this.zip.putNextEntry(new ZipEntry(entryName + ERROR_SUFFIX));
+            String message = result.error.getClass().getSimpleName() + ": " + result.error.getMessage();
+            this.zip.write(message.getBytes(StandardCharsets.UTF_8));
+            this.zip.closeEntry();
+        }
+
+        @Override
+        public void close() throws IOException {
+            while (this.inFlight > 0) {
+                this.drainOne();
+            }
+            if (this.broken) {
+                return;
+            }
+            this.zip.finish();
+            this.zip.flush();
+        }
+    }
+}
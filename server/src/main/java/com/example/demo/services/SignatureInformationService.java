@@ -1,26 +1,29 @@
 package com.example.demo.services;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.security.GeneralSecurityException;
-import java.security.Security;
 import java.security.cert.X509Certificate;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
 
 import org.bouncycastle.asn1.tsp.TSTInfo;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.operator.OperatorCreationException;
 import org.springframework.stereotype.Service;
 
-import com.itextpdf.forms.PdfAcroForm;
-import com.itextpdf.kernel.geom.Rectangle;
+import com.example.demo.dto.response.SignatureInspection;
+import com.example.demo.dto.response.SignatureInspectionReport;
+import com.example.demo.storage.DocumentSource;
+import com.example.demo.validation.DetachedSignatureVerifier;
+import com.example.demo.validation.RevisionDigester;
+import com.example.demo.validation.SignedRevision;
 import com.itextpdf.kernel.pdf.PdfDictionary;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfName;
-import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfString;
-import com.itextpdf.kernel.pdf.annot.PdfWidgetAnnotation;
 import com.itextpdf.signatures.CertificateInfo;
 import com.itextpdf.signatures.PdfPKCS7;
 import com.itextpdf.signatures.SignaturePermissions;
@@ -29,127 +32,135 @@ import com.itextpdf.signatures.TimestampConstants;
 
 @Service
 public class SignatureInformationService {
-    public SignatureInformationService() {
-        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
-            Security.addProvider(new BouncyCastleProvider());
-        }
+    private final RevisionDigester revisionDigester;
+
+    private final DetachedSignatureVerifier detachedSignatureVerifier;
+
+    public SignatureInformationService(RevisionDigester revisionDigester, DetachedSignatureVerifier detachedSignatureVerifier) {
+        this.revisionDigester = revisionDigester;
+        this.detachedSignatureVerifier = detachedSignatureVerifier;
     }
 
-    public SignaturePermissions inspectSignature(PdfDocument pdfDoc, SignatureUtil signUtil, PdfAcroForm form,
-            String name, SignaturePermissions perms) throws GeneralSecurityException, NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
-        List<PdfWidgetAnnotation> widgets = form.getField(name).getWidgets();
-
-        // Check the visibility of the signature annotation
-        if (widgets != null && widgets.size() > 0) {
-            Rectangle pos = widgets.get(0).getRectangle().toRectangle();
-            int pageNum = pdfDoc.getPageNumber(widgets.get(0).getPage());
-            if (pos.getWidth() == 0 || pos.getHeight() == 0) {
-                System.out.println("Invisible signature");
-            } else {
-                System.out.println(String.format("Field on page %s; llx: %s, lly: %s, urx: %s; ury: %s",
-                        pageNum, pos.getLeft(), pos.getBottom(), pos.getRight(), pos.getTop()));
+    /**
+     * Describes every signature of the document. Only the xref, the AcroForm,
+     * the signature dictionaries and the widget page references are read; page
+     * content is never loaded and page numbers come from the widget's
+     * {@code /P} ancestors. The signed ranges of all the signatures are
+     * hashed together in a single pass to report their integrity.
+     *
+     * @return One entry per signature, oldest revision first.
+     */
+    public SignatureInspectionReport inspectSignatures(DocumentSource file) throws IOException, GeneralSecurityException {
+        SignatureInspectionReport report = new SignatureInspectionReport();
+
+        try (PdfDocument pdfDoc = new PdfDocument(file.openReader())) {
+            SignatureUtil signUtil = new SignatureUtil(pdfDoc);
+            List<SignedRevision> revisions = SignedRevision.readAll(pdfDoc, signUtil);
+
+            List<long[]> byteRanges = new ArrayList<>(revisions.size());
+            List<String> digestAlgorithms = new ArrayList<>(revisions.size());
+            for (SignedRevision revision : revisions) {
+                byteRanges.add(revision.getByteRange());
+                digestAlgorithms.add(detachedSignatureVerifier.digestAlgorithmOid(revision));
             }
+            List<byte[]> digests = revisionDigester.digest(file, byteRanges, digestAlgorithms);
+
+            /* Every new signature can add more restrictions to a document, but it can't take away previous restrictions.
+             * So the permissions of each signature are built on top of the previous one.
+             */
+            SignaturePermissions perms = null;
+            for (int i = 0; i < revisions.size(); i++) {
+                SignedRevision revision = revisions.get(i);
+                SignatureInspection inspection = new SignatureInspection();
+                try {
+                    perms = inspectSignature(signUtil, revision, digestAlgorithms.get(i), digests.get(i), perms, inspection);
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    inspection.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                }
+                report.getSignatures().add(inspection);
+            }
+            report.setTotalRevisions(revisions.isEmpty() ? 0 : revisions.get(0).getTotalRevisions());
         }
 
-        /* Find out how the message digest of the PDF bytes was created,
-         * how these bytes and additional attributes were signed
-         * and how the signed bytes are stored in the PDF
-         */
-        PdfPKCS7 pkcs7 = verifySignature(signUtil, name);
-        System.out.println("Digest algorithm: " + pkcs7.getDigestAlgorithm());
-        System.out.println("Encryption algorithm: " + pkcs7.getHashAlgorithm());
-        System.out.println("Filter subtype: " + pkcs7.getFilterSubtype());
-
-        // Get the signing certificate to find out the name of the signer.
-        X509Certificate cert = (X509Certificate) pkcs7.getSigningCertificate();
-        System.out.println("Name of the signer: " + CertificateInfo.getSubjectFields(cert).getField("CN"));
-        if (pkcs7.getSignName() != null) {
-            System.out.println("Alternative name of the signer: " + pkcs7.getSignName());
-        }
+        return report;
+    }
 
-        // Get the signing time
-        SimpleDateFormat date_format = new SimpleDateFormat("yyyy-MM-dd");
+    private SignaturePermissions inspectSignature(SignatureUtil signUtil, SignedRevision revision,
+            String digestAlgorithm, byte[] digest, SignaturePermissions perms, SignatureInspection inspection) throws GeneralSecurityException {
+        inspection.setName(revision.getName());
+        inspection.setRevision(revision.getRevision());
+        inspection.setCoversWholeDocument(revision.isCoversWholeDocument());
+        inspection.setLocation(revision.getLocation());
+        inspection.setReason(revision.getReason());
+
+        // Position of the signature annotation, if any
+        float[] pos = revision.getWidgetRectangle();
+        if (pos != null) {
+            inspection.setPage(revision.getWidgetPage());
+            inspection.setVisible(pos[2] != pos[0] && pos[3] != pos[1]);
+            inspection.setPosition(pos);
+        }
 
-        /* Mind that the getSignDate() method is not that secure as timestamp
-         * because it's based only on signature author claim. I.e. this value can only be trusted
-         * if signature is trusted and it cannot be used for signature verification.
+        /* How the message digest of the PDF bytes was created,
+         * how these bytes and additional attributes were signed
+         * and how the signed bytes are stored in the PDF
          */
-        System.out.println("Signed on: " + date_format.format(pkcs7.getSignDate().getTime()));
-
-        /* If a timestamp was applied, retrieve information about it.
-         * Timestamp is a secure source of signature creation time,
-         * because it's based on Time Stamping Authority service.
+        PdfPKCS7 pkcs7 = revision.toPdfPKCS7();
+        inspection.setIntegrityValid(verifyIntegrity(signUtil, revision, digestAlgorithm, digest));
+        inspection.setDigestAlgorithm(pkcs7.getHashAlgorithm());
+        inspection.setEncryptionAlgorithm(pkcs7.getEncryptionAlgorithm());
+        inspection.setFilterSubtype(pkcs7.getFilterSubtype() == null ? null : pkcs7.getFilterSubtype().getValue());
+        byte[] signedDigest = detachedSignatureVerifier.signedMessageDigest(revision.getContents());
+        inspection.setSignedDigest(signedDigest == null ? null : HexFormat.of().withUpperCase().formatHex(signedDigest));
+
+        X509Certificate cert = pkcs7.getSigningCertificate();
+        inspection.setSignerName(CertificateInfo.getSubjectFields(cert).getField("CN"));
+        inspection.setAlternativeName(pkcs7.getSignName());
+
+        /* The signing time is only the author's claim; the timestamp, when
+         * present, is the trusted source of the signature creation time.
          */
+        inspection.setSignDate(toDate(pkcs7.getSignDate()));
         if (TimestampConstants.UNDEFINED_TIMESTAMP_DATE != pkcs7.getTimeStampDate()) {
-            System.out.println("TimeStamp: " + date_format.format(pkcs7.getTimeStampDate().getTime()));
+            inspection.setTimestampDate(toDate(pkcs7.getTimeStampDate()));
             TSTInfo ts = ((TSTInfo) pkcs7.getTimeStampToken().getTimeStampInfo().toASN1Structure());
-            System.out.println("TimeStamp service: " + ts.getTsa());
-            System.out.println("Timestamp verified? " + pkcs7.verifyTimestampImprint());
+            inspection.setTimestampAuthority(ts.getTsa() == null ? null : ts.getTsa().toString());
+            inspection.setTimestampImprintValid(pkcs7.verifyTimestampImprint());
         }
 
-        System.out.println("Location: " + pkcs7.getLocation());
-        System.out.println("Reason: " + pkcs7.getReason());
-
-        /* If you want less common entries than PdfPKCS7 object has, such as the contact info,
-         * you should use the signature dictionary and get the properties by name.
-         */
-        PdfDictionary sigDict = signUtil.getSignatureDictionary(name);
+        PdfDictionary sigDict = signUtil.getSignatureDictionary(revision.getName());
         PdfString contact = sigDict.getAsString(PdfName.ContactInfo);
         if (contact != null) {
-            System.out.println("Contact info: " + contact);
+            inspection.setContactInfo(contact.toUnicodeString());
         }
 
-        /* Every new signature can add more restrictions to a document, but it can't take away previous restrictions.
-         * So if you want to retrieve information about signatures restrictions, you need to pass
-         * the SignaturePermissions instance of the previous signature, or null if there was none.
-         */
         perms = new SignaturePermissions(sigDict, perms);
-        System.out.println("Signature type: " + (perms.isCertification() ? "certification" : "approval"));
-        System.out.println("Filling out fields allowed: " + perms.isFillInAllowed());
-        System.out.println("Adding annotations allowed: " + perms.isAnnotationsAllowed());
+        inspection.setCertification(perms.isCertification());
+        inspection.setFillInAllowed(perms.isFillInAllowed());
+        inspection.setAnnotationsAllowed(perms.isAnnotationsAllowed());
         for (SignaturePermissions.FieldLock lock : perms.getFieldLocks()) {
-            System.out.println("Lock: " + lock.toString());
+            inspection.getFieldLocks().add(lock.toString());
         }
 
         return perms;
     }
 
-    public PdfPKCS7 verifySignature(SignatureUtil signUtil, String name) throws GeneralSecurityException, NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
-        PdfPKCS7 pkcs7 = signUtil.readSignatureData(name);
-
-        Field digestAttrField = pkcs7.getClass().getDeclaredField("digestAttr");
-        digestAttrField.setAccessible(true);
-        byte[] digestAttr = (byte[]) digestAttrField.get(pkcs7);
-
-        System.out.println(byteArrayToString(digestAttr));
-        System.out.println("Signature covers whole document: " + signUtil.signatureCoversWholeDocument(name));
-        System.out.println("Document revision: " + signUtil.getRevision(name) + " of " + signUtil.getTotalRevisions());
-        System.out.println("Integrity check O? " + pkcs7.verifySignatureIntegrityAndAuthenticity());
-
-        return pkcs7;
-    }
-
-    private String byteArrayToString(byte[] ba) {
-        char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
-        char[] hexChars = new char[ba.length * 2];
-        for(int j = 0; j < ba.length; j++) {
-            int v = ba[j] & 0xFF;
-            hexChars[j * 2] = HEX_ARRAY[j >>> 4];
-            hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
+    /**
+     * Checks the integrity against the digest computed for all the signatures
+     * at once. Signatures without a precomputed digest are hashed on their own.
+     */
+    private boolean verifyIntegrity(SignatureUtil signUtil, SignedRevision revision, String digestAlgorithm, byte[] digest) throws GeneralSecurityException {
+        if (digest == null) {
+            return signUtil.readSignatureData(revision.getName()).verifySignatureIntegrityAndAuthenticity();
+        }
+        try {
+            return detachedSignatureVerifier.verify(revision.getContents(), digestAlgorithm, digest);
+        } catch (CMSException | OperatorCreationException e) {
+            throw new GeneralSecurityException(e);
         }
-        return new String(hexChars);
     }
 
-    public void inspectSignatures(byte[] file) throws IOException, GeneralSecurityException, NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
-        PdfDocument pdfDoc = new PdfDocument(new PdfReader(new ByteArrayInputStream(file)));
-        PdfAcroForm form = PdfAcroForm.getAcroForm(pdfDoc, false);
-        SignaturePermissions perms = null;
-        SignatureUtil signUtil = new SignatureUtil(pdfDoc);
-        List<String> names = signUtil.getSignatureNames();
-
-        for (String name : names) {
-            System.out.println("===== " + name + " =====");
-            perms = inspectSignature(pdfDoc, signUtil, form, name, perms);
-        }
+    private static Date toDate(Calendar calendar) {
+        return calendar == null || calendar == TimestampConstants.UNDEFINED_TIMESTAMP_DATE ? null : calendar.getTime();
     }
 }
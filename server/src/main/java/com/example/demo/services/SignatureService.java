@@ -1,146 +1,367 @@
 
 package com.example.demo.services;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.security.GeneralSecurityException;
-import java.security.PrivateKey;
-import java.security.Security;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Future;
 
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.crypto.CryptoPrimitives;
 import com.example.demo.dto.response.StartSigningResponse;
+import com.example.demo.execution.PdfWorkDispatcher;
 import com.example.demo.factory.SignatureAppearanceBuilder;
+import com.example.demo.factory.SignatureAppearanceCache;
+import com.example.demo.helpers.FutureHelper;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.observability.SigningObservations.Flow;
+import com.example.demo.observability.SigningObservations.Phase;
+import com.example.demo.signature.ContainerSizeEstimator;
 import com.example.demo.factory.SignatureAppearanceBuilder.StampType;
-import com.example.demo.helpers.Pkcs12FileHelper;
 import com.example.demo.session.SigningSession;
 import com.example.demo.signature.Pkcs7Signer;
+import com.example.demo.signature.PreparedSignature;
 import com.example.demo.signature.SignatureConstraints;
 import com.example.demo.signature.containers.DigestCalcBlankSignatureContainer;
+import com.example.demo.signature.containers.LocalSigningContainer;
 import com.example.demo.signature.containers.ReadySignatureContainer;
+import com.example.demo.signature.timestamp.TsaClient;
+import com.example.demo.signature.identity.SigningIdentity;
+import com.example.demo.signature.identity.SigningIdentityRegistry;
+import com.example.demo.storage.DocumentBuffers;
+import com.example.demo.storage.DocumentSink;
+import com.example.demo.storage.DocumentSource;
+import com.example.demo.storage.PreparedDocumentStore;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfName;
 import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.StampingProperties;
-import com.itextpdf.signatures.BouncyCastleDigest;
 import com.itextpdf.signatures.IExternalSignatureContainer;
 import com.itextpdf.signatures.PdfPKCS7;
 import com.itextpdf.signatures.PdfSignatureAppearance;
 import com.itextpdf.signatures.PdfSigner;
+import com.itextpdf.signatures.SignatureUtil;
 
 @Service
 public class SignatureService {
+    private static final String SIGN_CERT_FILE_NAME = "/certificates/new.p12";
+
     private final Pkcs7Signer pkcs7Signer;
 
     private final SigningSession signingSession;
 
-    public SignatureService(Pkcs7Signer pkcs7Signer, SigningSession signingSession) {
+    private final SigningIdentityRegistry signingIdentityRegistry;
+
+    private final SignatureAppearanceCache signatureAppearanceCache;
+
+    private final DocumentBuffers documentBuffers;
+
+    private final PreparedDocumentStore preparedDocumentStore;
+
+    private final AsyncTaskExecutor pdfWorkExecutor;
+
+    private final CryptoPrimitives cryptoPrimitives;
+
+    private final ContainerSizeEstimator containerSizeEstimator;
+
+    private final TsaClient tsaClient;
+
+    private final SigningObservations observations;
+
+    private final PdfWorkDispatcher pdfWorkDispatcher;
+
+    private final boolean localAppendMode;
+
+    public SignatureService(Pkcs7Signer pkcs7Signer, SigningSession signingSession, SigningIdentityRegistry signingIdentityRegistry,
+            SignatureAppearanceCache signatureAppearanceCache, DocumentBuffers documentBuffers, PreparedDocumentStore preparedDocumentStore,
+            @Qualifier("pdfWorkExecutor") AsyncTaskExecutor pdfWorkExecutor, CryptoPrimitives cryptoPrimitives,
+            ContainerSizeEstimator containerSizeEstimator, TsaClient tsaClient, SigningObservations observations,
+            PdfWorkDispatcher pdfWorkDispatcher, @Value("${signing.local.append-mode:false}") boolean localAppendMode) {
         this.pkcs7Signer = pkcs7Signer;
         this.signingSession = signingSession;
+        this.signingIdentityRegistry = signingIdentityRegistry;
+        this.signatureAppearanceCache = signatureAppearanceCache;
+        this.documentBuffers = documentBuffers;
+        this.preparedDocumentStore = preparedDocumentStore;
+        this.pdfWorkExecutor = pdfWorkExecutor;
+        this.cryptoPrimitives = cryptoPrimitives;
+        this.containerSizeEstimator = containerSizeEstimator;
+        this.tsaClient = tsaClient;
+        this.observations = observations;
+        this.pdfWorkDispatcher = pdfWorkDispatcher;
+        this.localAppendMode = localAppendMode;
+    }
 
-        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
-            Security.addProvider(new BouncyCastleProvider());
+    public byte[] locallySign(byte[] file, char[] password) throws IOException, GeneralSecurityException {
+        try (DocumentSource signed = this.locallySign(this.documentBuffers.wrap(file), password)) {
+            return signed.toByteArray();
         }
     }
 
-    public byte[] locallySign(byte[] file, char[] password) throws IOException, GeneralSecurityException {
-        ByteArrayInputStream input = new ByteArrayInputStream(file);
-        ByteArrayOutputStream signedStream = new ByteArrayOutputStream();
+    /**
+     * Signs the document with the server key in a single pass: the digest and
+     * the CMS are computed while iText writes the document, so there is no
+     * blank container round trip. Above the large document threshold the signed
+     * copy is written to a temporary file instead of a byte array. Uses the
+     * append mode configured in {@code signing.local.append-mode}.
+     *
+     * @return The signed document. The caller owns it and must close it.
+     */
+    public DocumentSource locallySign(DocumentSource file, char[] password) throws IOException, GeneralSecurityException {
+        return this.locallySign(file, password, this.localAppendMode);
+    }
 
-        PdfReader reader = new PdfReader(input);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PdfSigner signer = new PdfSigner(reader, baos, new StampingProperties());
-        signer.setCertificationLevel(PdfSigner.CERTIFIED_NO_CHANGES_ALLOWED);
-        this.createSignatureAppearance(signer);
+    /**
+     * @param appendMode Whether the signature is added as an incremental update.
+     * The original bytes are then kept as they are, which keeps the existing
+     * signatures valid; iText still copies the whole document into the output,
+     * so it costs as much I/O as a rewrite. Otherwise the whole document is
+     * rewritten and certified.
+     * @return The signed document. The caller owns it and must close it.
+     */
+    public DocumentSource locallySign(DocumentSource file, char[] password, boolean appendMode) throws IOException, GeneralSecurityException {
+        return this.pdfWorkDispatcher.run(() -> this.signLocally(file, password, appendMode));
+    }
 
-        // generates empty container and get bytes
-        DigestCalcBlankSignatureContainer external = this.createBlankSignatureContainer();
-        signer.signExternalContainer(external, SignatureConstraints.EXTERNAL_CONTAINER_ESTIMATED_SIZE);
-        byte[] blankContainerBytes = external.getDocBytesHash();
-        byte[] preSignedDocumentWithBlankContainerBytes = baos.toByteArray();
+    private DocumentSource signLocally(DocumentSource file, char[] password, boolean appendMode) throws IOException, GeneralSecurityException {
+        this.observations.recordDocumentSize(Flow.LOCAL, file.size());
+        SigningIdentity signIdentity = this.signingIdentityRegistry.resolve(SIGN_CERT_FILE_NAME, password);
+        Certificate[] chain = signIdentity.getCertificateChain();
 
-        // sign the hash
-        String signCertFileName = "/certificates/new.p12";
-        Certificate[] signChain = Pkcs12FileHelper.readFirstChain(signCertFileName, password);
-        PrivateKey signPrivateKey = Pkcs12FileHelper.readFirstKey(signCertFileName, password, password);
-        byte[] cmsSignature = this.pkcs7Signer.sign(blankContainerBytes, signPrivateKey, signChain);
+        int unsignedAttributesSize = this.plannedUnsignedAttributesSize() + this.pkcs7Signer.getUnsignedAttributesSize();
+        int estimatedSize = this.containerSizeEstimator.estimate(chain, unsignedAttributesSize);
+        LocalSigningContainer container = this.createLocalSigningContainer(signIdentity);
+        try {
+            return this.locallySign(file, container, estimatedSize, appendMode);
+        } catch (IOException e) {
+            // iText fails with "Not enough space" once the container is built
+            if (container.getContainerSize() <= estimatedSize) {
+                throw e;
+            }
+        }
+        int requiredSize = this.containerSizeEstimator.grow(chain, unsignedAttributesSize, container.getContainerSize());
+        return this.locallySign(file, this.createLocalSigningContainer(signIdentity), requiredSize, appendMode);
+    }
 
-        // fill the signature to the presigned document
-        ReadySignatureContainer extSigContainer = new ReadySignatureContainer(cmsSignature);
+    private DocumentSource locallySign(DocumentSource file, LocalSigningContainer container, int estimatedSize, boolean appendMode)
+            throws IOException, GeneralSecurityException {
+        try (DocumentSink signed = this.documentBuffers.newSink(file.size())) {
+            StampingProperties properties = appendMode ? new StampingProperties().useAppendMode() : new StampingProperties();
+            PdfSigner signer = this.observations.observe(Flow.LOCAL, Phase.PARSE,
+                    () -> this.createSigner(file.openReader(), signed, properties));
+            int existingSignatures = new SignatureUtil(signer.getDocument()).getSignatureNames().size();
+            if (appendMode) {
+                // Only the first signature of a document may certify it
+                signer.setCertificationLevel(existingSignatures > 0 ? PdfSigner.NOT_CERTIFIED : PdfSigner.CERTIFIED_NO_CHANGES_ALLOWED);
+            } else {
+                signer.setCertificationLevel(PdfSigner.CERTIFIED_NO_CHANGES_ALLOWED);
+            }
+            this.observations.observe(Flow.LOCAL, Phase.APPEARANCE, () -> this.createSignatureAppearance(signer));
+
+            this.observations.observe(Flow.LOCAL, Phase.EMBED, () -> signer.signExternalContainer(container, estimatedSize));
+            this.observations.recordSignatureCount(Flow.LOCAL, existingSignatures + 1);
+
+            return signed.toSource();
+        }
+    }
 
-        PdfDocument docToSign = new PdfDocument(new PdfReader(new ByteArrayInputStream(preSignedDocumentWithBlankContainerBytes)));
-        PdfSigner.signDeferred(docToSign, signer.getFieldName(), signedStream, extSigContainer);
-        docToSign.close();
+    public StartSigningResponse startRemoteSigning(byte[] file, String certContent) throws IOException, GeneralSecurityException, CertificateException {
+        PreparedSignature preparedSignature = this.startRemoteSigning(this.documentBuffers.wrap(file), certContent);
+        return this.toStartSigningResponse(preparedSignature);
+    }
 
-        return signedStream.toByteArray();
+    /**
+     * 1st remote signing step: prepares the document and keeps what the
+     * complete step needs in the signing session.
+     */
+    public PreparedSignature startRemoteSigning(DocumentSource file, String certContent) throws IOException, GeneralSecurityException, CertificateException {
+        PreparedSignature preparedSignature = this.prepareRemoteSigning(file, certContent);
+
+        // Store necessary data in the session
+        this.signingSession.setPreparedDocumentHandle(preparedSignature.getPreparedDocumentHandle());
+        this.signingSession.setFieldName(preparedSignature.getFieldName());
+        this.signingSession.setToSign(preparedSignature.getToSign());
+        this.signingSession.setCertContent(certContent);
+        this.signingSession.setBeforeAttr(preparedSignature.getBeforeAttr());
+
+        return preparedSignature;
     }
 
-    public StartSigningResponse startRemoteSigning(byte[] file, String certContent) throws IOException, GeneralSecurityException, CertificateException {
+    /**
+     * Adds the blank signature container to the document, stages the prepared
+     * PDF and computes the bytes the client has to sign. Does not touch the
+     * signing session.
+     */
+    public PreparedSignature prepareRemoteSigning(DocumentSource file, String certContent) throws IOException, GeneralSecurityException, CertificateException {
+        return this.pdfWorkDispatcher.run(() -> this.prepareDocument(file, certContent));
+    }
+
+    private PreparedSignature prepareDocument(DocumentSource file, String certContent) throws IOException, GeneralSecurityException {
         X509Certificate certificate = this.decodeCertificate(certContent);
         X509Certificate[] certificateChain = new X509Certificate[]{certificate};
+        this.observations.recordDocumentSize(Flow.REMOTE_START, file.size());
+
+        String preparedDocumentHandle;
+        String fieldName;
+        byte[] beforeAttrBytes;
+        try (DocumentSink preparedPdf = this.documentBuffers.newSink(file.size())) {
+            PdfSigner signer = this.observations.observe(Flow.REMOTE_START, Phase.PARSE,
+                    () -> this.createSigner(file.openReader(), preparedPdf, new StampingProperties().useAppendMode()));
+            int existingSignatures = new SignatureUtil(signer.getDocument()).getSignatureNames().size();
+
+            this.observations.observe(Flow.REMOTE_START, Phase.APPEARANCE, () -> this.createSignatureAppearance(signer));
+            signer.setCertificationLevel(PdfSigner.NOT_CERTIFIED);
+            fieldName = signer.getFieldName();
+
+            // Calculate the hash using DigestCalcBlankSigner
+            DigestCalcBlankSignatureContainer external = this.createBlankSignatureContainer();
+            // The client signature cannot be retried, so the estimate has to fit
+            int estimatedSize = this.containerSizeEstimator.estimateWithMargin(certificateChain, this.plannedUnsignedAttributesSize());
+            this.observations.observe(Flow.REMOTE_START, Phase.EMBED, () -> signer.signExternalContainer(external, estimatedSize));
+            this.observations.recordSignatureCount(Flow.REMOTE_START, existingSignatures + 1);
+
+            beforeAttrBytes = external.getDocBytesHash();
+            try (DocumentSource preparedDocument = preparedPdf.toSource()) {
+                preparedDocumentHandle = this.preparedDocumentStore.put(preparedDocument);
+            }
+        }
+        byte[] toSignHash = this.observations.observe(Flow.REMOTE_START, Phase.CMS,
+                () -> this.generateBytesToSign(beforeAttrBytes, certificateChain)); // Get the hash
 
-        ByteArrayInputStream input = new ByteArrayInputStream(file);
-        ByteArrayOutputStream preparedPdfStream = new ByteArrayOutputStream();
-        
-        PdfReader reader = new PdfReader(input);
-        PdfSigner signer = new PdfSigner(reader, preparedPdfStream, new StampingProperties().useAppendMode());
-        
-        this.createSignatureAppearance(signer);
-        signer.setCertificationLevel(PdfSigner.NOT_CERTIFIED);
-        String fieldName = signer.getFieldName();
-        
-        // Calculate the hash using DigestCalcBlankSigner
-        DigestCalcBlankSignatureContainer external = new DigestCalcBlankSignatureContainer(PdfName.Adobe_PPKLite, PdfName.Adbe_pkcs7_detached);
-        signer.signExternalContainer(external, 8192); // Estimated size
-        
-        byte[] preSignedBytes = preparedPdfStream.toByteArray();
-        byte[] beforeAttrBytes = external.getDocBytesHash();
-        byte[] toSignHash = this.generateBytesToSign(beforeAttrBytes, certificateChain); // Get the hash
-        
-        // Store necessary data in the session
-        this.signingSession.setPreparedPdfBytes(preSignedBytes);
-        this.signingSession.setFieldName(fieldName);
-        this.signingSession.setToSign(toSignHash);
+        return new PreparedSignature(preparedDocumentHandle, fieldName, toSignHash, beforeAttrBytes, null);
+    }
+
+    /**
+     * Batch version of the 1st remote signing step. The documents are prepared
+     * concurrently on the PDF work pool and the batch is kept in the signing
+     * session in the given order.
+     */
+    public List<PreparedSignature> startRemoteSigningBatch(List<DocumentSource> files, List<String> documentNames, String certContent)
+            throws IOException, GeneralSecurityException {
+        List<Future<PreparedSignature>> futures = new ArrayList<>(files.size());
+        for (DocumentSource file : files) {
+            futures.add(this.pdfWorkExecutor.submit(() -> this.prepareRemoteSigning(file, certContent)));
+        }
+        List<PreparedSignature> batch = FutureHelper.awaitAll(futures);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setDocumentName(documentNames.get(i));
+        }
+
+        this.signingSession.setBatch(batch);
         this.signingSession.setCertContent(certContent);
-        this.signingSession.setBeforeAttr(beforeAttrBytes);
-        
-        // Return the prepared PDF and the hash to the client
+
+        return batch;
+    }
+
+    /**
+     * Builds the JSON form of the start response, with the prepared PDF and the
+     * hash encoded in Base64.
+     */
+    public StartSigningResponse toStartSigningResponse(PreparedSignature preparedSignature) throws IOException {
         StartSigningResponse startSigningResponse = new StartSigningResponse();
-        startSigningResponse.setPreparedPdfBytes(Base64.getEncoder().encodeToString(preSignedBytes));
-        startSigningResponse.setToSignHash(Base64.getEncoder().encodeToString(toSignHash));
+        try (DocumentSource preparedDocument = this.preparedDocumentStore.get(preparedSignature.getPreparedDocumentHandle())) {
+            startSigningResponse.setPreparedPdfBytes(Base64.getEncoder().encodeToString(preparedDocument.toByteArray()));
+        }
+        startSigningResponse.setToSignHash(Base64.getEncoder().encodeToString(preparedSignature.getToSign()));
 
         return startSigningResponse;
     }
 
-    public byte[] completeRemoteSigning(byte[] signedHash, byte[] preparedPdfBytes, String fieldName, byte[] beforeAttrBytes, String certContent) throws IOException, GeneralSecurityException, CertificateException {
+    /**
+     * Embeds the client signature into the prepared document.
+     *
+     * @return The signed document. The caller owns it and must close it.
+     */
+    public DocumentSource completeRemoteSigning(byte[] signedHash, DocumentSource preparedPdf, String fieldName, byte[] beforeAttrBytes, String certContent) throws IOException, GeneralSecurityException, CertificateException {
+        return this.pdfWorkDispatcher.run(() -> this.embedClientSignature(signedHash, preparedPdf, fieldName, beforeAttrBytes, certContent));
+    }
+
+    private DocumentSource embedClientSignature(byte[] signedHash, DocumentSource preparedPdf, String fieldName, byte[] beforeAttrBytes, String certContent)
+            throws IOException, GeneralSecurityException {
         X509Certificate certificate = this.decodeCertificate(certContent);
+        this.observations.recordDocumentSize(Flow.REMOTE_COMPLETE, preparedPdf.size());
+
+        byte[] signatureContent = this.observations.observe(Flow.REMOTE_COMPLETE, Phase.CMS, () -> {
+            PdfPKCS7 pkcs7 = new PdfPKCS7(null, new X509Certificate[]{certificate}, SignatureConstraints.HASH_ALGORITHM, null, this.cryptoPrimitives.externalDigest(), false);
+
+            pkcs7.setExternalDigest(signedHash, null, SignatureConstraints.DIGEST_ALGORITHM);
+            return pkcs7.getEncodedPKCS7(beforeAttrBytes, PdfSigner.CryptoStandard.CMS,
+                    this.tsaClient.isEnabled() ? this.tsaClient : null, null, null);
+        });
+
+        IExternalSignatureContainer externalSignatureContainer = new ReadySignatureContainer(signatureContent);
+        return this.observations.observe(Flow.REMOTE_COMPLETE, Phase.EMBED,
+                () -> this.signDeferred(preparedPdf, fieldName, externalSignatureContainer));
+    }
+
+    /**
+     * Batch version of the complete step. The client signatures are embedded
+     * concurrently on the PDF work pool.
+     *
+     * @return The signed documents, in the batch order. The caller owns them and must close them.
+     */
+    public List<DocumentSource> completeRemoteSigningBatch(List<byte[]> signedHashes, List<PreparedSignature> batch, String certContent)
+            throws IOException, GeneralSecurityException {
+        if (signedHashes.size() != batch.size()) {
+            throw new IllegalArgumentException("Expected " + batch.size() + " signatures but received " + signedHashes.size());
+        }
 
-        PdfPKCS7 pkcs7 = new PdfPKCS7(null, new X509Certificate[]{certificate}, SignatureConstraints.HASH_ALGORITHM, null, new BouncyCastleDigest(), false);
+        List<Future<DocumentSource>> futures = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            PreparedSignature prepared = batch.get(i);
+            byte[] signedHash = signedHashes.get(i);
+            futures.add(this.pdfWorkExecutor.submit(() -> {
+                try (DocumentSource preparedPdf = this.preparedDocumentStore.get(prepared.getPreparedDocumentHandle())) {
+                    return this.completeRemoteSigning(signedHash, preparedPdf, prepared.getFieldName(), prepared.getBeforeAttr(), certContent);
+                }
+            }));
+        }
+        List<DocumentSource> signed = FutureHelper.awaitAll(futures, SignatureService::closeQuietly);
 
-        pkcs7.setExternalDigest(signedHash, null, SignatureConstraints.DIGEST_ALGORITHM);
-        byte[] signatureContent = pkcs7.getEncodedPKCS7(beforeAttrBytes);
+        for (PreparedSignature prepared : batch) {
+            this.preparedDocumentStore.remove(prepared.getPreparedDocumentHandle());
+        }
+        return signed;
+    }
 
-        try (ByteArrayOutputStream signedPdfStream = new ByteArrayOutputStream();
-            PdfDocument docToSign = new PdfDocument(new PdfReader(new ByteArrayInputStream(preparedPdfBytes)))) {
+    /**
+     * Creates the signer, letting iText spool its intermediate copy to a
+     * temporary file when the output itself goes to a file.
+     */
+    private PdfSigner createSigner(PdfReader reader, DocumentSink output, StampingProperties properties) throws IOException {
+        return this.createSigner(reader, output.getWorkDirectory(), output.openStream(), properties);
+    }
+
+    private PdfSigner createSigner(PdfReader reader, String workDirectory, OutputStream output, StampingProperties properties) throws IOException {
+        if (workDirectory == null) {
+            return new PdfSigner(reader, output, properties);
+        }
+        return new PdfSigner(reader, output, workDirectory, properties);
+    }
 
-            IExternalSignatureContainer externalSignatureContainer = new ReadySignatureContainer(signatureContent);
-            PdfSigner.signDeferred(docToSign, fieldName, signedPdfStream, externalSignatureContainer);
+    private DocumentSource signDeferred(DocumentSource preSigned, String fieldName, IExternalSignatureContainer container) throws IOException, GeneralSecurityException {
+        try (DocumentSink signed = this.documentBuffers.newSink(preSigned.size());
+            PdfDocument docToSign = new PdfDocument(preSigned.openReader())) {
+            PdfSigner.signDeferred(docToSign, fieldName, signed.openStream(), container);
             docToSign.close();
 
-            return signedPdfStream.toByteArray();
+            return signed.toSource();
         }
     }
 
     private PdfSignatureAppearance createSignatureAppearance(PdfSigner signer) {
         PdfSignatureAppearance appearance = signer.getSignatureAppearance();
-        SignatureAppearanceBuilder signatureAppearanceBuilder = new SignatureAppearanceBuilder(signer.getDocument(), appearance, true)
+        SignatureAppearanceBuilder signatureAppearanceBuilder = new SignatureAppearanceBuilder(signer.getDocument(), appearance, true, this.signatureAppearanceCache)
                 .withText("Assinado Digitalmente por\n" +
                                         "NOME DO USUÁRIO\n" +
                                         "(Emitido pelo CPF 690.XXX.XXX-20)\n" +
@@ -159,7 +380,7 @@ public class SignatureService {
     private byte[] generateBytesToSign(byte[] docBytes, Certificate[] chain) {
         byte[] attributes = null;
         try {
-            PdfPKCS7 pkcs7 = new PdfPKCS7(null, chain, SignatureConstraints.HASH_ALGORITHM, null, new BouncyCastleDigest(), false);
+            PdfPKCS7 pkcs7 = new PdfPKCS7(null, chain, SignatureConstraints.HASH_ALGORITHM, null, this.cryptoPrimitives.externalDigest(), false);
 
             attributes = pkcs7.getAuthenticatedAttributeBytes(docBytes, PdfSigner.CryptoStandard.CMS, null, null);
         } catch (GeneralSecurityException e) {
@@ -180,16 +401,32 @@ public class SignatureService {
         // Decode and load the certificate bytes
         byte[] certBytes = Base64.getDecoder().decode(base64Certificate);
 
-        X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
-                .generateCertificate(new ByteArrayInputStream(certBytes));
+        return this.cryptoPrimitives.decodeCertificate(certBytes);
+    }
+
+    /**
+     * @return Room to reserve in the container for the signature timestamp.
+     */
+    private int plannedUnsignedAttributesSize() {
+        return this.tsaClient.isEnabled() ? this.tsaClient.getTokenSizeEstimate() : 0;
+    }
 
-        return certificate;
+    private LocalSigningContainer createLocalSigningContainer(SigningIdentity signIdentity) {
+        return new LocalSigningContainer(this.pkcs7Signer, signIdentity, PdfName.Adobe_PPKLite, PdfName.Adbe_pkcs7_detached,
+                this.cryptoPrimitives, this.observations);
     }
 
     private DigestCalcBlankSignatureContainer createBlankSignatureContainer() {
         PdfName filter = PdfName.Adobe_PPKLite;
         PdfName subFilter = PdfName.Adbe_pkcs7_detached;
-        return new DigestCalcBlankSignatureContainer(filter, subFilter);
+        return new DigestCalcBlankSignatureContainer(filter, subFilter, this.cryptoPrimitives, this.observations);
     }
-}
 
+    private static void closeQuietly(DocumentSource document) {
+        try {
+            document.close();
+        } catch (IOException e) {
+            // temporary file cleanup is best effort
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package com.example.demo.services;
 
+import com.example.demo.crypto.CryptoPrimitives;
 import com.example.demo.dto.response.ValidationResult;
+import com.example.demo.execution.PdfWorkDispatcher;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.observability.SigningObservations.Flow;
+import com.example.demo.observability.SigningObservations.Phase;
+import com.example.demo.signature.batch.MerkleBatchProof;
+import com.example.demo.validation.CertificatePathCache;
+import com.example.demo.validation.revocation.RevocationService;
+import com.example.demo.validation.revocation.RevocationStatus;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.security.Security;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.cert.CertPath;
 import java.security.cert.CertPathBuilder;
 import java.security.cert.CertStore;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateExpiredException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.CollectionCertStoreParameters;
 import java.security.cert.PKIXBuilderParameters;
@@ -27,27 +37,59 @@ import org.bouncycastle.asn1.cms.AttributeTable;
 import org.bouncycastle.asn1.cms.CMSAttributes;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.cert.X509CertificateHolder;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cms.*;
-import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.util.Selector;
 import org.bouncycastle.util.Store;
 import org.springframework.stereotype.Service;
 @Service
 public class ValidationService {
+  private final CertificatePathCache certificatePathCache;
+
+  private final CryptoPrimitives cryptoPrimitives;
+
+  private final RevocationService revocationService;
+
+  private final SigningObservations observations;
+
+  private final PdfWorkDispatcher pdfWorkDispatcher;
+
+  /**
+   * The Brazilian root, loaded on first use.
+   */
+  private volatile X509Certificate rootCertificate;
+
+  private volatile String trustStoreVersion;
+
+  public ValidationService(CertificatePathCache certificatePathCache, CryptoPrimitives cryptoPrimitives,
+                           RevocationService revocationService, SigningObservations observations,
+                           PdfWorkDispatcher pdfWorkDispatcher) {
+      this.certificatePathCache = certificatePathCache;
+      this.cryptoPrimitives = cryptoPrimitives;
+      this.revocationService = revocationService;
+      this.observations = observations;
+      this.pdfWorkDispatcher = pdfWorkDispatcher;
+  }
 
   public ValidationResult validateSignature(byte[] signedContent) {
+      try {
+          return pdfWorkDispatcher.run(() -> validate(signedContent));
+      } catch (IOException | GeneralSecurityException e) {
+          ValidationResult result = new ValidationResult();
+          result.addFailure("Error validating signature: " + e.getMessage());
+          return result;
+      }
+  }
+
+  private ValidationResult validate(byte[] signedContent) {
       ValidationResult result = new ValidationResult();
 
       try {
-          // Initialize Bouncy Castle provider if not already done
-          Security.addProvider(new BouncyCastleProvider());
-
           // Parse the CMS/PKCS#7 signed data
           CMSSignedData cmsSignedData = new CMSSignedData(signedContent);
           Store<X509CertificateHolder> certificates = cmsSignedData.getCertificates();
           SignerInformation signer = cmsSignedData.getSignerInfos().getSigners().iterator().next();
+          observations.recordDocumentSize(Flow.VALIDATE, signedContent.length);
+          observations.recordSignatureCount(Flow.VALIDATE, cmsSignedData.getSignerInfos().size());
 
           // 1. Validate content type and message digest
           validateContentTypeAndDigest(signer, result);
@@ -60,10 +102,10 @@ public class ValidationService {
           }
 
           // 3. Validate signature value
-          validateSignatureValue(signer, signerCert, result);
+          observations.observe(Flow.VALIDATE, Phase.SIGNATURE_VALUE, () -> validateSignatureValue(signer, signerCert, result));
 
           // 4. Validate certificate chain
-          validateCertificateChain(signerCert, certificates, result);
+          observations.observe(Flow.VALIDATE, Phase.CERTIFICATE_CHAIN, () -> validateCertificateChain(signerCert, certificates, result));
 
           // 5. Validate signed attributes
           validateSignedAttributes(signer, result);
@@ -73,7 +115,32 @@ public class ValidationService {
 
       } catch (Exception e) {
         e.printStackTrace();
-          result.addError("Error validating signature: " + e.getMessage());
+          result.addFailure("Error validating signature: " + e.getMessage());
+      }
+
+      return result;
+  }
+
+  /**
+   * Validates only the signer certificate (path and revocation) of a CMS
+   * signature, for callers that verify the signature value themselves.
+   */
+  public ValidationResult validateSignerCertificate(byte[] signedContent) {
+      ValidationResult result = new ValidationResult();
+
+      try {
+          CMSSignedData cmsSignedData = new CMSSignedData(signedContent);
+          Store<X509CertificateHolder> certificates = cmsSignedData.getCertificates();
+          SignerInformation signer = cmsSignedData.getSignerInfos().getSigners().iterator().next();
+
+          X509CertificateHolder signerCert = getCertificate(certificates, signer.getSID());
+          if (signerCert == null) {
+              result.addError("Signer certificate not found");
+              return result;
+          }
+          observations.observe(Flow.VALIDATE, Phase.CERTIFICATE_CHAIN, () -> validateCertificateChain(signerCert, certificates, result));
+      } catch (Exception e) {
+          result.addFailure("Error validating signer certificate: " + e.getMessage());
       }
 
       return result;
@@ -107,7 +174,7 @@ public class ValidationService {
           }
 
       } catch (Exception e) {
-          result.addError("Error validating content type and digest: " + e.getMessage());
+          result.addFailure("Error validating content type and digest: " + e.getMessage());
       }
   }
 
@@ -115,9 +182,18 @@ public class ValidationService {
                                     X509CertificateHolder signerCert, 
                                     ValidationResult result) {
       try {
-          SignerInformationVerifier verifier = new JcaSimpleSignerInfoVerifierBuilder()
-              .setProvider(new BouncyCastleProvider())
-              .build(signerCert);
+          MerkleBatchProof batchProof = MerkleBatchProof.of(signer);
+          if (batchProof != null) {
+              // Batch signed: the signature value covers the root the signed attributes lead to
+              if (batchProof.verify(signer, signerCert, cryptoPrimitives)) {
+                  result.addSuccess("The signature value is correct for the batch the signature belongs to");
+              } else {
+                  result.addError("Invalid signature value or batch inclusion proof");
+              }
+              return;
+          }
+
+          SignerInformationVerifier verifier = cryptoPrimitives.verifier(signerCert);
 
           if (signer.verify(verifier)) {
               result.addSuccess("The signature value is correct");
@@ -125,7 +201,7 @@ public class ValidationService {
               result.addError("Invalid signature value");
           }
       } catch (Exception e) {
-          result.addError("Error validating signature value: " + e.getMessage());
+          result.addFailure("Error validating signature value: " + e.getMessage());
       }
   }
 
@@ -133,53 +209,67 @@ public class ValidationService {
                                       Store<X509CertificateHolder> certificates, 
                                       ValidationResult result) {
       try {
-          // Convert Bouncy Castle certificates to Java certificates
-          List<X509Certificate> certChain = new ArrayList<>();
-          JcaX509CertificateConverter converter = new JcaX509CertificateConverter()
-              .setProvider(new BouncyCastleProvider());
-
-          // Add signer certificate
-          certChain.add(converter.getCertificate(signerCert));
-
           Collection<X509CertificateHolder> certHolders = certificates.getMatches(null);
-          for (X509CertificateHolder certHolder : certHolders) {
-              if (!certHolder.equals(signerCert)) {
-                  certChain.add(converter.getCertificate(certHolder));
-              }
-          }
 
           // Load Brazilian root certificate
           X509Certificate rootCert = loadBrazilianRootCertificate();
 
-          // Build certification path
-          CertPathBuilder builder = CertPathBuilder.getInstance("PKIX", "BC");
-          X509CertSelector selector = new X509CertSelector();
-          selector.setCertificate(certChain.get(0));  // Signer certificate
-
-          Set<TrustAnchor> trustAnchors = Collections.singleton(new TrustAnchor(rootCert, null));
-          PKIXBuilderParameters params = new PKIXBuilderParameters(trustAnchors, selector);
-
-          // Add intermediate certificates to the path
-          CertStore intermediateCertStore = CertStore.getInstance("Collection",
-              new CollectionCertStoreParameters(certChain),
-              "BC");
-          params.addCertStore(intermediateCertStore);
+          // Reuse the path already built for the same certificates
+          String cacheKey = certificatePathCache.keyOf(signerCert, certHolders);
+          CertPath certPath = certificatePathCache.get(cacheKey);
 
-          // Disable CRL checking for now (implement proper CRL/OCSP checking in production)
-          params.setRevocationEnabled(false);
-
-          // Build and validate the certification path
-          PKIXCertPathBuilderResult pathResult = (PKIXCertPathBuilderResult) builder.build(params);
+          if (certPath == null) {
+              certPath = buildCertificatePath(signerCert, certHolders, rootCert);
+              certificatePathCache.put(cacheKey, certPath, rootCert);
+          }
 
           // Validate the entire chain
-          validateCertificateValidity(pathResult.getCertPath(), result);
+          validateCertificateValidity(certPath, result);
+          validateRevocation(certPath, rootCert, result);
 
           result.addSuccess("O emissor do certificado é confiável");
           result.addSuccess("A raiz Autoridade Certificadora Raiz Brasileira v5 é confiável");
 
       } catch (Exception e) {
-          result.addError("Error validating certificate chain: " + e.getMessage());
+          result.addFailure("Error validating certificate chain: " + e.getMessage());
+      }
+  }
+
+  private CertPath buildCertificatePath(X509CertificateHolder signerCert,
+                                        Collection<X509CertificateHolder> certHolders,
+                                        X509Certificate rootCert) throws Exception {
+      // Convert Bouncy Castle certificates to Java certificates
+      List<X509Certificate> certChain = new ArrayList<>();
+
+      // Add signer certificate
+      certChain.add(cryptoPrimitives.toX509Certificate(signerCert));
+
+      for (X509CertificateHolder certHolder : certHolders) {
+          if (!certHolder.equals(signerCert)) {
+              certChain.add(cryptoPrimitives.toX509Certificate(certHolder));
+          }
       }
+
+      // Build certification path
+      CertPathBuilder builder = CertPathBuilder.getInstance("PKIX", CryptoPrimitives.provider());
+      X509CertSelector selector = new X509CertSelector();
+      selector.setCertificate(certChain.get(0));  // Signer certificate
+
+      Set<TrustAnchor> trustAnchors = Collections.singleton(new TrustAnchor(rootCert, null));
+      PKIXBuilderParameters params = new PKIXBuilderParameters(trustAnchors, selector);
+
+      // Add intermediate certificates to the path
+      CertStore intermediateCertStore = CertStore.getInstance("Collection",
+          new CollectionCertStoreParameters(certChain),
+          CryptoPrimitives.provider());
+      params.addCertStore(intermediateCertStore);
+
+      // Revocation is checked by the RevocationService against its local CRL/OCSP caches
+      params.setRevocationEnabled(false);
+
+      // Build and validate the certification path
+      PKIXCertPathBuilderResult pathResult = (PKIXCertPathBuilderResult) builder.build(params);
+      return pathResult.getCertPath();
   }
 
   private void validateCertificateValidity(CertPath certPath, ValidationResult result) {
@@ -197,13 +287,61 @@ public class ValidationService {
       }
   }
 
+  private void validateRevocation(CertPath certPath, X509Certificate rootCert, ValidationResult result) {
+      List<? extends Certificate> certs = certPath.getCertificates();
+      for (int i = 0; i < certs.size(); i++) {
+          X509Certificate x509Cert = (X509Certificate) certs.get(i);
+          X509Certificate issuer = i + 1 < certs.size() ? (X509Certificate) certs.get(i + 1) : rootCert;
+          String subject = x509Cert.getSubjectX500Principal().getName();
+
+          RevocationStatus status = revocationService.check(x509Cert, issuer);
+          switch (status.getStatus()) {
+              case GOOD:
+                  result.addSuccess("O certificado " + subject + " não está revogado (" + status.getSource() + ")");
+                  break;
+              case REVOKED:
+                  result.addError("Certificate " + subject + " was revoked on " + status.getRevocationDate());
+                  break;
+              default:
+                  if (revocationService.isStatusRequired()) {
+                      result.addError("Revocation status of certificate " + subject + " is unknown");
+                  }
+          }
+      }
+  }
+
+  /**
+   * Identifies the trust store the results are computed against: the first
+   * bytes of the root certificate SHA-256 fingerprint, or {@code none} when no
+   * root is available.
+   */
+  public String getTrustStoreVersion() {
+      String version = this.trustStoreVersion;
+      if (version != null) {
+          return version;
+      }
+      try {
+          byte[] fingerprint = MessageDigest.getInstance("SHA-256").digest(loadBrazilianRootCertificate().getEncoded());
+          version = HexFormat.of().formatHex(fingerprint, 0, 8);
+          this.trustStoreVersion = version;
+          return version;
+      } catch (Exception e) {
+          return "none";
+      }
+  }
+
   private X509Certificate loadBrazilianRootCertificate() throws Exception {
+      X509Certificate rootCert = this.rootCertificate;
+      if (rootCert != null) {
+          return rootCert;
+      }
       try (InputStream is = getClass().getResourceAsStream("/certificates/ACRaizBrasileirav5.cer")) {
           if (is == null) {
               throw new FileNotFoundException("Brazilian root certificate not found in resources");
           }
-          CertificateFactory cf = CertificateFactory.getInstance("X.509");
-          return (X509Certificate) cf.generateCertificate(is);
+          rootCert = (X509Certificate) cryptoPrimitives.certificateFactory().generateCertificate(is);
+          this.rootCertificate = rootCert;
+          return rootCert;
       }
   }
 
@@ -312,7 +450,8 @@ public class ValidationService {
           PKCSObjectIdentifiers.id_aa_ets_certValues,
           PKCSObjectIdentifiers.id_aa_ets_revocationValues,
           PKCSObjectIdentifiers.id_aa_ets_escTimeStamp,
-          PKCSObjectIdentifiers.id_aa_ets_archiveTimestamp
+          PKCSObjectIdentifiers.id_aa_ets_archiveTimestamp,
+          MerkleBatchProof.OID
       ).contains(oid);
   }
 }
\ No newline at end of file
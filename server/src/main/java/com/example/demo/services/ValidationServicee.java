@@ -2,24 +2,65 @@ package com.example.demo.services;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.GeneralSecurityException;
-import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.Future;
 
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.dto.response.SignatureVerification;
+import com.example.demo.dto.response.SignatureVerificationReport;
+import com.example.demo.execution.PdfWorkDispatcher;
+import com.example.demo.helpers.FutureHelper;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.observability.SigningObservations.Flow;
+import com.example.demo.observability.SigningObservations.Phase;
+import com.example.demo.storage.DocumentSource;
+import com.example.demo.validation.DetachedSignatureVerifier;
+import com.example.demo.validation.RevisionDigester;
+import com.example.demo.validation.SignedRevision;
+import com.itextpdf.io.source.IRandomAccessSource;
+import com.itextpdf.io.source.RASInputStream;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
 import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.signatures.CertificateInfo;
 import com.itextpdf.signatures.PdfPKCS7;
 import com.itextpdf.signatures.SignatureUtil;
+import com.itextpdf.signatures.TimestampConstants;
 
 @Service
 public class ValidationServicee {
-    public ValidationServicee() {
-        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
-            Security.addProvider(new BouncyCastleProvider());
-        }
+    private final ValidationService validationService;
+
+    private final RevisionDigester revisionDigester;
+
+    private final DetachedSignatureVerifier detachedSignatureVerifier;
+
+    private final AsyncTaskExecutor pdfWorkExecutor;
+
+    private final SigningObservations observations;
+
+    private final PdfWorkDispatcher pdfWorkDispatcher;
+
+    public ValidationServicee(ValidationService validationService, RevisionDigester revisionDigester,
+            DetachedSignatureVerifier detachedSignatureVerifier, @Qualifier("pdfWorkExecutor") AsyncTaskExecutor pdfWorkExecutor,
+            SigningObservations observations, PdfWorkDispatcher pdfWorkDispatcher) {
+        this.validationService = validationService;
+        this.revisionDigester = revisionDigester;
+        this.detachedSignatureVerifier = detachedSignatureVerifier;
+        this.pdfWorkExecutor = pdfWorkExecutor;
+        this.observations = observations;
+        this.pdfWorkDispatcher = pdfWorkDispatcher;
     }
 
     public void verifySignatures(byte[] file) throws IOException, GeneralSecurityException {
@@ -45,4 +86,95 @@ public class ValidationServicee {
         return pkcs7;
     }
 
+    /**
+     * Verifies every signature of the document concurrently. The signature
+     * dictionaries are read once on the calling thread and the signed ranges
+     * of all the signatures are hashed in one pass by the
+     * {@link RevisionDigester}. Checking each signature value and validating
+     * its signer chain then run on the PDF work pool, one task per signature.
+     *
+     * @return One entry per signature, oldest revision first.
+     */
+    public SignatureVerificationReport verifySignaturesInParallel(DocumentSource file) throws IOException, GeneralSecurityException {
+        this.observations.recordDocumentSize(Flow.VALIDATE, file.size());
+        List<SignedRevision> revisions = this.pdfWorkDispatcher.run(() -> this.observations.observe(Flow.VALIDATE, Phase.PARSE, () -> {
+            try (PdfDocument pdfDoc = new PdfDocument(file.openReader())) {
+                return SignedRevision.readAll(pdfDoc);
+            }
+        }));
+        this.observations.recordSignatureCount(Flow.VALIDATE, revisions.size());
+
+        List<long[]> byteRanges = new ArrayList<>(revisions.size());
+        List<String> digestAlgorithms = new ArrayList<>(revisions.size());
+        for (SignedRevision revision : revisions) {
+            byteRanges.add(revision.getByteRange());
+            digestAlgorithms.add(this.detachedSignatureVerifier.digestAlgorithmOid(revision));
+        }
+        List<byte[]> digests = this.pdfWorkDispatcher.run(() -> this.observations.observe(Flow.VALIDATE, Phase.DIGEST,
+                () -> this.revisionDigester.digest(file, byteRanges, digestAlgorithms)));
+
+        List<Future<SignatureVerification>> futures = new ArrayList<>(revisions.size());
+        for (int i = 0; i < revisions.size(); i++) {
+            SignedRevision revision = revisions.get(i);
+            String digestAlgorithm = digestAlgorithms.get(i);
+            byte[] digest = digests.get(i);
+            futures.add(this.pdfWorkExecutor.submit(() -> this.verifyRevision(file, revision, digestAlgorithm, digest)));
+        }
+
+        SignatureVerificationReport report = new SignatureVerificationReport();
+        report.setTotalRevisions(revisions.isEmpty() ? 0 : revisions.get(0).getTotalRevisions());
+        report.setSignatures(FutureHelper.awaitAll(futures));
+        return report;
+    }
+
+    private SignatureVerification verifyRevision(DocumentSource file, SignedRevision revision, String digestAlgorithm, byte[] digest) {
+        SignatureVerification verification = new SignatureVerification();
+        verification.setName(revision.getName());
+        verification.setRevision(revision.getRevision());
+        verification.setCoversWholeDocument(revision.isCoversWholeDocument());
+        verification.setReason(revision.getReason());
+        verification.setLocation(revision.getLocation());
+
+        try {
+            PdfPKCS7 pkcs7 = revision.toPdfPKCS7();
+            this.observations.observe(Flow.VALIDATE, Phase.SIGNATURE_VALUE, () -> {
+                if (digest != null) {
+                    try {
+                        verification.setIntegrityValid(this.detachedSignatureVerifier.verify(revision.getContents(), digestAlgorithm, digest));
+                    } catch (CMSException | OperatorCreationException e) {
+                        throw new GeneralSecurityException(e.getMessage(), e);
+                    }
+                } else {
+                    // Signatures the digester does not handle are hashed on their own
+                    this.updateWithSignedRanges(file, revision, pkcs7);
+                    verification.setIntegrityValid(pkcs7.verifySignatureIntegrityAndAuthenticity());
+                }
+            });
+
+            X509Certificate signer = pkcs7.getSigningCertificate();
+            verification.setSignerName(CertificateInfo.getSubjectFields(signer).getField("CN"));
+            Calendar signDate = pkcs7.getSignDate();
+            verification.setSignDate(signDate == null || signDate == TimestampConstants.UNDEFINED_TIMESTAMP_DATE ? null : signDate.getTime());
+
+            if (!PdfName.Adbe_x509_rsa_sha1.equals(revision.getSubFilter())) {
+                verification.setCertificateValidation(this.validationService.validateSignerCertificate(revision.getContents()));
+            }
+        } catch (Exception e) {
+            verification.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        return verification;
+    }
+
+    private void updateWithSignedRanges(DocumentSource file, SignedRevision revision, PdfPKCS7 pkcs7) throws IOException, GeneralSecurityException {
+        IRandomAccessSource source = file.openRandomAccess();
+        try (InputStream signed = new RASInputStream(new RandomAccessSourceFactory().createRanged(source, revision.getByteRange()))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = signed.read(buffer)) > 0) {
+                pkcs7.update(buffer, 0, read);
+            }
+        } finally {
+            source.close();
+        }
+    }
 }
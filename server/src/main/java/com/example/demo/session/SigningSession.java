@@ -1,11 +1,14 @@
 package com.example.demo.session;
 
 import java.io.Serializable;
+import java.util.List;
 
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.stereotype.Component;
 
+import com.example.demo.signature.PreparedSignature;
+
 import lombok.Data;
 
 /**
@@ -18,9 +21,11 @@ import lombok.Data;
 @Scope(scopeName = "session", proxyMode = ScopedProxyMode.TARGET_CLASS)
 public class SigningSession implements Serializable {
     /**
-     * The bytes of the original PDF (before adding any signature container).
+     * Handle of the prepared PDF (with the blank signature container) in the
+     * {@link com.example.demo.storage.PreparedDocumentStore}. The PDF itself is
+     * kept out of the session.
      */
-     private byte[] preparedPdfBytes;
+    private String preparedDocumentHandle;
 
     /**
      * The field name defined in the 1st remote signing step.
@@ -46,4 +51,10 @@ public class SigningSession implements Serializable {
      * to apply the signature to.
      */
      private byte[] beforeAttr;
+
+    /**
+     * The documents prepared by the batch start step, in the order the client
+     * has to return the signatures in the batch complete step.
+     */
+    private List<PreparedSignature> batch;
 }
@@ -0,0 +1,23 @@
+package com.example.demo.signature;
+
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.util.concurrent.CompletableFuture;
+
+import com.example.demo.signature.identity.SigningIdentity;
+
+/**
+ * Signer whose private key operations complete asynchronously, for keys that
+ * are slow to use (tokens, HSMs) and benefit from grouping requests.
+ */
+public interface AsyncPkcs7Signer {
+  /**
+   * @param data Digest of the document byte ranges.
+   * @return Future of the encoded CMS container.
+   */
+  CompletableFuture<byte[]> signAsync(byte[] data, PrivateKey privateKey, Certificate[] certificateChain);
+
+  default CompletableFuture<byte[]> signAsync(byte[] data, SigningIdentity identity) {
+    return this.signAsync(data, identity.getPrivateKey(), identity.getCertificateChain());
+  }
+}
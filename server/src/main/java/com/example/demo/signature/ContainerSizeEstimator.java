@@ -0,0 +1,208 @@
+package com.example.demo.signature;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Estimates how many bytes a signer's CMS container takes, so the signature
+ * placeholder is sized from the actual chain instead of a fixed guess. The
+ * estimate adds up the encoded certificates, the signature value for the
+ * signer key, the planned unsigned attributes (timestamps, revocation data)
+ * and a fixed allowance for the SignedData structure and signed attributes.
+ *
+ * Estimates are cached per signer, keyed by the issuer and serial number of
+ * the signer certificate and the chain length, which are read without encoding
+ * the chain. When a container turns out larger than its estimate,
+ * {@link #grow} records the size that was actually needed, so the next
+ * signature of that signer gets it right away. Flows that cannot retry a
+ * signature add the small {@code signing.container-size.remote-margin} on top
+ * with {@link #estimateWithMargin}; the chain, key and planned attributes are
+ * already counted, so the margin only covers their encoding slack.
+ */
+@Component
+public class ContainerSizeEstimator {
+    /**
+     * SignedData and SignerInfo framing, algorithm identifiers and the signed
+     * attributes (content type, message digest, signing certificate).
+     */
+    private static final int STRUCTURE_OVERHEAD = 1024;
+
+    /**
+     * Signature value size assumed for keys that are neither RSA nor EC.
+     */
+    private static final int UNKNOWN_SIGNATURE_SIZE = 1024;
+
+    /**
+     * Estimates are rounded up to this granularity, which also leaves some
+     * room for attributes whose size varies between signatures.
+     */
+    private static final int ROUNDING = 512;
+
+    private final int maxEntries;
+
+    private final int margin;
+
+    private final Map<Key, Integer> estimates;
+
+    private final Counter resizes;
+
+    public ContainerSizeEstimator(MeterRegistry meterRegistry,
+            @Value("${signing.container-size.max-entries:256}") int maxEntries,
+            @Value("${signing.container-size.remote-margin:512}") int margin) {
+        this.maxEntries = maxEntries;
+        this.margin = margin;
+        this.estimates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+                return size() > ContainerSizeEstimator.this.maxEntries;
+            }
+        };
+        this.resizes = Counter.builder("signing.container.resize")
+                .description("Signatures whose container did not fit the estimated placeholder")
+                .register(meterRegistry);
+    }
+
+    public int estimate(Certificate[] chain) {
+        return this.estimate(chain, 0);
+    }
+
+    /**
+     * @param chain The signer chain, signer certificate first, as it is embedded
+     * in the container.
+     * @param unsignedAttributesSize Encoded size of the unsigned attributes that
+     * will be added to the container.
+     * @return The placeholder size in bytes, as expected by
+     * {@code PdfSigner.signExternalContainer}.
+     */
+    public int estimate(Certificate[] chain, int unsignedAttributesSize) {
+        if (chain == null || chain.length == 0) {
+            return SignatureConstraints.EXTERNAL_CONTAINER_ESTIMATED_SIZE + unsignedAttributesSize;
+        }
+        Key key = keyOf(chain, unsignedAttributesSize);
+        if (key != null) {
+            synchronized (this.estimates) {
+                Integer estimate = this.estimates.get(key);
+                if (estimate != null) {
+                    return estimate;
+                }
+            }
+        }
+
+        int size = STRUCTURE_OVERHEAD + signatureSize(chain[0].getPublicKey()) + unsignedAttributesSize;
+        for (Certificate certificate : chain) {
+            try {
+                size += certificate.getEncoded().length;
+            } catch (CertificateEncodingException e) {
+                return SignatureConstraints.EXTERNAL_CONTAINER_ESTIMATED_SIZE + unsignedAttributesSize;
+            }
+        }
+        int estimate = roundUp(size);
+        if (key == null) {
+            return estimate;
+        }
+        synchronized (this.estimates) {
+            // A size learned from an oversized container wins over the computed one
+            return this.estimates.merge(key, estimate, Math::max);
+        }
+    }
+
+    /**
+     * Same as {@link #estimate(Certificate[], int)} plus a safety margin, for
+     * flows where a container that does not fit cannot be retried, such as a
+     * signature made by the client.
+     */
+    public int estimateWithMargin(Certificate[] chain, int unsignedAttributesSize) {
+        return this.estimate(chain, unsignedAttributesSize) + this.margin;
+    }
+
+    /**
+     * Records that a container of the given chain needed {@code requiredSize}
+     * bytes.
+     *
+     * @return The placeholder size to retry with.
+     */
+    public int grow(Certificate[] chain, int unsignedAttributesSize, int requiredSize) {
+        this.resizes.increment();
+        int estimate = roundUp(requiredSize + ROUNDING);
+        Key key = chain == null || chain.length == 0 ? null : keyOf(chain, unsignedAttributesSize);
+        if (key != null) {
+            synchronized (this.estimates) {
+                this.estimates.merge(key, estimate, Math::max);
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * @return The cache key of the chain, or null if its signer certificate is
+     * not an X.509 certificate.
+     */
+    private static Key keyOf(Certificate[] chain, int unsignedAttributesSize) {
+        if (!(chain[0] instanceof X509Certificate)) {
+            return null;
+        }
+        X509Certificate signer = (X509Certificate) chain[0];
+        return new Key(signer.getIssuerX500Principal(), signer.getSerialNumber(), chain.length, unsignedAttributesSize);
+    }
+
+    private static int signatureSize(PublicKey publicKey) {
+        if (publicKey instanceof RSAPublicKey) {
+            return (((RSAPublicKey) publicKey).getModulus().bitLength() + 7) / 8;
+        }
+        if (publicKey instanceof ECPublicKey) {
+            // DER SEQUENCE of two INTEGERs, each at most one byte longer than the order
+            int orderSize = (((ECPublicKey) publicKey).getParams().getOrder().bitLength() + 7) / 8;
+            return 2 * (orderSize + 3) + 3;
+        }
+        return UNKNOWN_SIGNATURE_SIZE;
+    }
+
+    private static int roundUp(int size) {
+        return (size + ROUNDING - 1) / ROUNDING * ROUNDING;
+    }
+
+    private static final class Key {
+        private final X500Principal issuer;
+        private final BigInteger serialNumber;
+        private final int chainLength;
+        private final int unsignedAttributesSize;
+
+        private Key(X500Principal issuer, BigInteger serialNumber, int chainLength, int unsignedAttributesSize) {
+            this.issuer = issuer;
+            this.serialNumber = serialNumber;
+            this.chainLength = chainLength;
+            this.unsignedAttributesSize = unsignedAttributesSize;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.chainLength == key.chainLength && this.unsignedAttributesSize == key.unsignedAttributesSize
+                    && this.serialNumber.equals(key.serialNumber) && this.issuer.equals(key.issuer);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.serialNumber, this.chainLength, this.unsignedAttributesSize);
+        }
+    }
+}
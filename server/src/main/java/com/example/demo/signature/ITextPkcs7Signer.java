@@ -2,28 +2,48 @@ package com.example.demo.signature;
 
 import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
+import java.security.Signature;
 import java.security.cert.Certificate;
 
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.springframework.stereotype.Component;
 
-import com.itextpdf.signatures.BouncyCastleDigest;
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.signature.timestamp.TsaClient;
 import com.itextpdf.signatures.DigestAlgorithms;
 import com.itextpdf.signatures.PdfPKCS7;
 import com.itextpdf.signatures.PdfSigner;
-import com.itextpdf.signatures.PrivateKeySignature;
 
 @Component
 public class ITextPkcs7Signer implements Pkcs7Signer {
     private static final String HASH_ALGORITHM = DigestAlgorithms.SHA256;
 
+    private final CryptoPrimitives cryptoPrimitives;
+
+    private final TsaClient tsaClient;
+
+    public ITextPkcs7Signer(CryptoPrimitives cryptoPrimitives, TsaClient tsaClient) {
+        this.cryptoPrimitives = cryptoPrimitives;
+        this.tsaClient = tsaClient;
+    }
+
     @Override
     public byte[] sign(byte[] data, PrivateKey privateKey, Certificate[] certificateChain) throws GeneralSecurityException {
-        PdfPKCS7 pkcs7 = new PdfPKCS7(null, certificateChain, HASH_ALGORITHM, null, new BouncyCastleDigest(), false);
+        PdfPKCS7 pkcs7 = new PdfPKCS7(null, certificateChain, HASH_ALGORITHM, null, this.cryptoPrimitives.externalDigest(), false);
         byte[] attributes = pkcs7.getAuthenticatedAttributeBytes(data, PdfSigner.CryptoStandard.CMS, null, null);
-        PrivateKeySignature signature = new PrivateKeySignature(privateKey, HASH_ALGORITHM, BouncyCastleProvider.PROVIDER_NAME);
-        byte[] attrSign = signature.sign(attributes);
-        pkcs7.setExternalDigest(attrSign, null, signature.getEncryptionAlgorithm());
-        return pkcs7.getEncodedPKCS7(data);
+
+        // Same algorithm naming as iText's PrivateKeySignature, but with a pooled Signature
+        String encryptionAlgorithm = privateKey.getAlgorithm();
+        if ("EC".equals(encryptionAlgorithm)) {
+            encryptionAlgorithm = "ECDSA";
+        }
+        String hashAlgorithm = DigestAlgorithms.getDigest(DigestAlgorithms.getAllowedDigest(HASH_ALGORITHM));
+        Signature signature = this.cryptoPrimitives.signature(hashAlgorithm + "with" + encryptionAlgorithm);
+        signature.initSign(privateKey);
+        signature.update(attributes);
+        byte[] attrSign = signature.sign();
+
+        pkcs7.setExternalDigest(attrSign, null, encryptionAlgorithm);
+        // Adds the signature timestamp when a TSA is configured
+        return pkcs7.getEncodedPKCS7(data, PdfSigner.CryptoStandard.CMS, this.tsaClient.isEnabled() ? this.tsaClient : null, null, null);
     }
 }
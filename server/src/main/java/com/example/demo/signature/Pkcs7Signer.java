@@ -4,6 +4,20 @@ import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
 
+import com.example.demo.signature.identity.SigningIdentity;
+
 public interface Pkcs7Signer {
   byte[] sign(byte[] data, PrivateKey privateKey, Certificate[] certificateChain) throws GeneralSecurityException;
+
+  default byte[] sign(byte[] data, SigningIdentity identity) throws GeneralSecurityException {
+    return this.sign(data, identity.getPrivateKey(), identity.getCertificateChain());
+  }
+
+  /**
+   * @return Bytes of unsigned attributes the signer adds to every container on
+   * its own, to be reserved in the signature placeholder.
+   */
+  default int getUnsignedAttributesSize() {
+    return 0;
+  }
 }
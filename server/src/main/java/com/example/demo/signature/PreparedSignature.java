@@ -0,0 +1,41 @@
+package com.example.demo.signature;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of the 1st remote signing step for one document: what the client
+ * has to sign and what the server needs to embed the signature afterwards.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PreparedSignature {
+    /**
+     * Handle of the prepared PDF in the
+     * {@link com.example.demo.storage.PreparedDocumentStore}.
+     */
+    private String preparedDocumentHandle;
+
+    /**
+     * The signature field name reserved in the prepared PDF.
+     */
+    private String fieldName;
+
+    /**
+     * The authenticated attribute bytes the client has to sign.
+     */
+    private byte[] toSign;
+
+    /**
+     * Digest of the prepared PDF byte ranges, used to build the CMS in the
+     * complete step.
+     */
+    private byte[] beforeAttr;
+
+    /**
+     * Original file name, when known. Used to name the signed documents of a batch.
+     */
+    private String documentName;
+}
@@ -0,0 +1,297 @@
+package com.example.demo.signature.batch;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.cms.Attribute;
+import org.bouncycastle.asn1.cms.AttributeTable;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+import org.bouncycastle.cms.SignerInformationStore;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.signature.AsyncPkcs7Signer;
+import com.example.demo.signature.Pkcs7Signer;
+import com.example.demo.signature.timestamp.TsaClient;
+import com.itextpdf.signatures.DigestAlgorithms;
+import com.itextpdf.signatures.PdfPKCS7;
+import com.itextpdf.signatures.PdfSigner;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Signer that gathers the requests made for the same key within
+ * {@code signing.batch.window} (or until {@code signing.batch.max-size} are
+ * waiting) and signs them with a single private key operation.
+ *
+ * The key signs the root of a {@link MerkleTree} whose leaves are the digests
+ * of each document's signed attributes, and each CMS carries its
+ * {@link MerkleBatchProof} as an unsigned attribute. A batch of one is signed
+ * the regular way, so a request that was not grouped produces a standard CMS.
+ * The window timers run on a single scheduler thread while the private key
+ * operations run on a pool of {@code signing.batch.signer-threads}, so a slow
+ * key (such as an HSM) never holds up the closing of other batches.
+ *
+ * Batched signatures are only understood by validators that know the proof
+ * attribute, which is why this signer replaces the default
+ * {@code ITextPkcs7Signer} only when {@code signing.batch.enabled} is set.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "signing.batch.enabled", havingValue = "true")
+public class BatchingPkcs7Signer implements Pkcs7Signer, AsyncPkcs7Signer, DisposableBean {
+    private static final String HASH_ALGORITHM = DigestAlgorithms.SHA256;
+
+    private static final ASN1ObjectIdentifier TREE_HASH_ALGORITHM = NISTObjectIdentifiers.id_sha256;
+
+    /**
+     * Encoded proof size without its path, and per path node.
+     */
+    private static final int PROOF_OVERHEAD = 96;
+
+    private static final int PROOF_NODE_SIZE = 34;
+
+    private final CryptoPrimitives cryptoPrimitives;
+
+    private final TsaClient tsaClient;
+
+    private final Duration window;
+
+    private final int maxBatchSize;
+
+    private final ThreadPoolTaskScheduler scheduler;
+
+    private final ThreadPoolTaskExecutor signers;
+
+    /**
+     * Batch currently gathering requests, per key.
+     */
+    private final Map<PrivateKey, Batch> open = new IdentityHashMap<>();
+
+    private final DistributionSummary batchSizes;
+
+    public BatchingPkcs7Signer(CryptoPrimitives cryptoPrimitives, TsaClient tsaClient, MeterRegistry meterRegistry,
+            @Value("${signing.batch.window:PT0.005S}") Duration window,
+            @Value("${signing.batch.max-size:64}") int maxBatchSize,
+            @Value("${signing.batch.signer-threads:0}") int signerThreads) {
+        this.cryptoPrimitives = cryptoPrimitives;
+        this.tsaClient = tsaClient;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(1);
+        this.scheduler.setThreadNamePrefix("pkcs7-batch-");
+        this.scheduler.initialize();
+        this.signers = new ThreadPoolTaskExecutor();
+        this.signers.setCorePoolSize(signerThreads > 0 ? signerThreads : Runtime.getRuntime().availableProcessors());
+        this.signers.setThreadNamePrefix("pkcs7-sign-");
+        this.signers.initialize();
+        this.batchSizes = DistributionSummary.builder("signing.batch.size")
+                .description("Documents signed by one private key operation")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public byte[] sign(byte[] data, PrivateKey privateKey, Certificate[] certificateChain) throws GeneralSecurityException {
+        PdfPKCS7 pkcs7 = this.newPkcs7(certificateChain);
+        String encryptionAlgorithm = encryptionAlgorithmOf(privateKey);
+        try {
+            // Only the key operation is shared, the container is encoded on the calling thread
+            SignedLeaf signed = this.submit(privateKey, encryptionAlgorithm, pkcs7.getAuthenticatedAttributeBytes(data,
+                    PdfSigner.CryptoStandard.CMS, null, null)).join();
+            return this.encode(pkcs7, data, encryptionAlgorithm, signed);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) e.getCause();
+            }
+            throw new GeneralSecurityException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<byte[]> signAsync(byte[] data, PrivateKey privateKey, Certificate[] certificateChain) {
+        PdfPKCS7 pkcs7;
+        byte[] attributes;
+        try {
+            pkcs7 = this.newPkcs7(certificateChain);
+            attributes = pkcs7.getAuthenticatedAttributeBytes(data, PdfSigner.CryptoStandard.CMS, null, null);
+        } catch (GeneralSecurityException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        String encryptionAlgorithm = encryptionAlgorithmOf(privateKey);
+        return this.submit(privateKey, encryptionAlgorithm, attributes)
+                .thenApply(signed -> this.encode(pkcs7, data, encryptionAlgorithm, signed));
+    }
+
+    /**
+     * @return Room for the proof of a full batch.
+     */
+    @Override
+    public int getUnsignedAttributesSize() {
+        int depth = 32 - Integer.numberOfLeadingZeros(Math.max(this.maxBatchSize - 1, 1));
+        return PROOF_OVERHEAD + depth * PROOF_NODE_SIZE;
+    }
+
+    @Override
+    public void destroy() {
+        this.scheduler.shutdown();
+        this.signers.shutdown();
+    }
+
+    private PdfPKCS7 newPkcs7(Certificate[] certificateChain) throws GeneralSecurityException {
+        return new PdfPKCS7(null, certificateChain, HASH_ALGORITHM, null, this.cryptoPrimitives.externalDigest(), false);
+    }
+
+    private static String encryptionAlgorithmOf(PrivateKey privateKey) {
+        return "EC".equals(privateKey.getAlgorithm()) ? "ECDSA" : privateKey.getAlgorithm();
+    }
+
+    private CompletableFuture<SignedLeaf> submit(PrivateKey privateKey, String encryptionAlgorithm, byte[] attributes) {
+        String signatureAlgorithm = DigestAlgorithms.getDigest(DigestAlgorithms.getAllowedDigest(HASH_ALGORITHM)) + "with" + encryptionAlgorithm;
+        Request request = new Request(attributes);
+        Batch full = null;
+        synchronized (this.open) {
+            Batch batch = this.open.get(privateKey);
+            if (batch == null) {
+                Batch created = new Batch(privateKey, signatureAlgorithm);
+                this.open.put(privateKey, created);
+                this.scheduler.schedule(() -> this.close(created), this.scheduler.getClock().instant().plus(this.window));
+                batch = created;
+            }
+            batch.requests.add(request);
+            if (batch.requests.size() >= this.maxBatchSize) {
+                this.open.remove(privateKey);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            Batch ready = full;
+            this.signers.execute(() -> this.sign(ready));
+        }
+        return request.result;
+    }
+
+    private void close(Batch batch) {
+        synchronized (this.open) {
+            // A batch that filled up was already taken out and signed
+            if (this.open.get(batch.key) != batch) {
+                return;
+            }
+            this.open.remove(batch.key);
+        }
+        this.signers.execute(() -> this.sign(batch));
+    }
+
+    private void sign(Batch batch) {
+        List<Request> requests = batch.requests;
+        try {
+            Signature signature = this.cryptoPrimitives.signature(batch.signatureAlgorithm);
+            signature.initSign(batch.key);
+            if (requests.size() == 1) {
+                signature.update(requests.get(0).attributes);
+                requests.get(0).result.complete(new SignedLeaf(signature.sign(), null));
+            } else {
+                List<byte[]> leaves = new ArrayList<>(requests.size());
+                for (Request request : requests) {
+                    leaves.add(this.cryptoPrimitives.messageDigest(HASH_ALGORITHM).digest(request.attributes));
+                }
+                MerkleTree tree = new MerkleTree(leaves, this.cryptoPrimitives.messageDigest(TREE_HASH_ALGORITHM.getId()));
+                signature.update(tree.root());
+                byte[] value = signature.sign();
+                for (int i = 0; i < requests.size(); i++) {
+                    MerkleBatchProof proof = new MerkleBatchProof(TREE_HASH_ALGORITHM, i, tree.size(), tree.path(i));
+                    requests.get(i).result.complete(new SignedLeaf(value, proof));
+                }
+            }
+            this.batchSizes.record(requests.size());
+        } catch (GeneralSecurityException | RuntimeException e) {
+            for (Request request : requests) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private byte[] encode(PdfPKCS7 pkcs7, byte[] data, String encryptionAlgorithm, SignedLeaf signed) {
+        pkcs7.setExternalDigest(signed.signature, null, encryptionAlgorithm);
+        // Every document of a batch shares the signature value, so their
+        // timestamp requests carry the same imprint and are coalesced
+        byte[] container = pkcs7.getEncodedPKCS7(data, PdfSigner.CryptoStandard.CMS,
+                this.tsaClient.isEnabled() ? this.tsaClient : null, null, null);
+        if (signed.proof == null) {
+            return container;
+        }
+        try {
+            return addUnsignedAttribute(container, signed.proof.toAttribute());
+        } catch (CMSException | IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static byte[] addUnsignedAttribute(byte[] container, Attribute attribute) throws CMSException, IOException {
+        CMSSignedData signedData = new CMSSignedData(container);
+        SignerInformation signer = signedData.getSignerInfos().getSigners().iterator().next();
+        AttributeTable unsignedAttributes = signer.getUnsignedAttributes();
+        unsignedAttributes = unsignedAttributes == null
+                ? new AttributeTable(attribute)
+                : unsignedAttributes.add(attribute.getAttrType(), attribute.getAttrValues().getObjectAt(0));
+        SignerInformation updated = SignerInformation.replaceUnsignedAttributes(signer, unsignedAttributes);
+        return CMSSignedData.replaceSigners(signedData, new SignerInformationStore(updated)).getEncoded(ASN1Encoding.DER);
+    }
+
+    private static final class Batch {
+        private final PrivateKey key;
+
+        private final String signatureAlgorithm;
+
+        private final List<Request> requests = new ArrayList<>();
+
+        private Batch(PrivateKey key, String signatureAlgorithm) {
+            this.key = key;
+            this.signatureAlgorithm = signatureAlgorithm;
+        }
+    }
+
+    private static final class Request {
+        private final byte[] attributes;
+
+        private final CompletableFuture<SignedLeaf> result = new CompletableFuture<>();
+
+        private Request(byte[] attributes) {
+            this.attributes = attributes;
+        }
+    }
+
+    private static final class SignedLeaf {
+        private final byte[] signature;
+
+        private final MerkleBatchProof proof;
+
+        private SignedLeaf(byte[] signature, MerkleBatchProof proof) {
+            this.signature = signature;
+            this.proof = proof;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo.signature.batch;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.cms.Attribute;
+import org.bouncycastle.asn1.cms.AttributeTable;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.SignerInformation;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.itextpdf.signatures.DigestAlgorithms;
+import com.itextpdf.signatures.EncryptionAlgorithms;
+
+/**
+ * Inclusion proof carried as an unsigned attribute by a CMS whose signature
+ * value covers a Merkle root instead of its own signed attributes.
+ *
+ * <pre>
+ * MerkleBatchProof ::= SEQUENCE {
+ *     hashAlgorithm AlgorithmIdentifier,
+ *     leafIndex     INTEGER,
+ *     leafCount     INTEGER,
+ *     path          SEQUENCE OF OCTET STRING }
+ * </pre>
+ *
+ * The leaf is the digest of the DER encoded signed attributes, computed with
+ * the signer digest algorithm; the tree is built with {@code hashAlgorithm}
+ * as described in {@link MerkleTree}.
+ */
+public final class MerkleBatchProof {
+    /**
+     * Private attribute type, under the UUID arc.
+     */
+    public static final ASN1ObjectIdentifier OID = new ASN1ObjectIdentifier("2.25.327545479677196042869466894136287585859");
+
+    private final ASN1ObjectIdentifier hashAlgorithm;
+
+    private final int leafIndex;
+
+    private final int leafCount;
+
+    private final List<byte[]> path;
+
+    public MerkleBatchProof(ASN1ObjectIdentifier hashAlgorithm, int leafIndex, int leafCount, List<byte[]> path) {
+        this.hashAlgorithm = hashAlgorithm;
+        this.leafIndex = leafIndex;
+        this.leafCount = leafCount;
+        this.path = path;
+    }
+
+    /**
+     * @return The proof of the signer, or null when it has none.
+     * @throws IllegalArgumentException When the attribute is malformed.
+     */
+    public static MerkleBatchProof of(SignerInformation signer) {
+        AttributeTable unsignedAttributes = signer.getUnsignedAttributes();
+        Attribute attribute = unsignedAttributes == null ? null : unsignedAttributes.get(OID);
+        if (attribute == null) {
+            return null;
+        }
+        ASN1Sequence sequence = ASN1Sequence.getInstance(attribute.getAttrValues().getObjectAt(0));
+        List<byte[]> path = new ArrayList<>();
+        for (Object node : ASN1Sequence.getInstance(sequence.getObjectAt(3))) {
+            path.add(ASN1OctetString.getInstance(node).getOctets());
+        }
+        return new MerkleBatchProof(
+                AlgorithmIdentifier.getInstance(sequence.getObjectAt(0)).getAlgorithm(),
+                ASN1Integer.getInstance(sequence.getObjectAt(1)).intValueExact(),
+                ASN1Integer.getInstance(sequence.getObjectAt(2)).intValueExact(),
+                path);
+    }
+
+    public Attribute toAttribute() {
+        ASN1EncodableVector nodes = new ASN1EncodableVector();
+        for (byte[] node : this.path) {
+            nodes.add(new DEROctetString(node));
+        }
+        ASN1EncodableVector proof = new ASN1EncodableVector();
+        proof.add(new AlgorithmIdentifier(this.hashAlgorithm));
+        proof.add(new ASN1Integer(this.leafIndex));
+        proof.add(new ASN1Integer(this.leafCount));
+        proof.add(new DERSequence(nodes));
+        return new Attribute(OID, new DERSet(new DERSequence(proof)));
+    }
+
+    /**
+     * Checks that the signed attributes of the signer are a leaf of the tree
+     * and that the signature value is a valid signature of its root.
+     */
+    public boolean verify(SignerInformation signer, X509CertificateHolder signerCert, CryptoPrimitives cryptoPrimitives)
+            throws GeneralSecurityException, IOException {
+        byte[] leaf = cryptoPrimitives.messageDigest(signer.getDigestAlgOID()).digest(signer.getEncodedSignedAttributes());
+        MessageDigest treeDigest = cryptoPrimitives.messageDigest(this.hashAlgorithm.getId());
+        byte[] root = MerkleTree.rootOf(leaf, this.leafIndex, this.leafCount, this.path, treeDigest);
+        if (root == null) {
+            return false;
+        }
+
+        Signature signature = cryptoPrimitives.signature(signatureAlgorithm(signer));
+        signature.initVerify(cryptoPrimitives.toX509Certificate(signerCert).getPublicKey());
+        signature.update(root);
+        return signature.verify(signer.getSignature());
+    }
+
+    /**
+     * @return The JCA name of the signer algorithm, e.g. {@code SHA256withRSA}.
+     */
+    private static String signatureAlgorithm(SignerInformation signer) {
+        return DigestAlgorithms.getDigest(signer.getDigestAlgOID()) + "with" + EncryptionAlgorithms.getAlgorithm(signer.getEncryptionAlgOID());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.signature.batch;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary hash tree over a list of leaf values. Leaves and inner nodes are
+ * hashed with distinct prefixes, as in RFC 9162, and a node without a sibling
+ * moves up to the next level unchanged.
+ */
+public final class MerkleTree {
+    private static final byte LEAF_PREFIX = 0x00;
+
+    private static final byte NODE_PREFIX = 0x01;
+
+    /**
+     * Levels from the hashed leaves up to the root.
+     */
+    private final List<byte[][]> levels = new ArrayList<>();
+
+    /**
+     * @param leaves Leaf values, in the order their proofs are asked for.
+     * @param digest Digest used for the whole tree. It is used up by the constructor.
+     */
+    public MerkleTree(List<byte[]> leaves, MessageDigest digest) {
+        if (leaves.isEmpty()) {
+            throw new IllegalArgumentException("A Merkle tree needs at least one leaf");
+        }
+        byte[][] level = new byte[leaves.size()][];
+        for (int i = 0; i < level.length; i++) {
+            level[i] = hashLeaf(leaves.get(i), digest);
+        }
+        this.levels.add(level);
+        while (level.length > 1) {
+            byte[][] parent = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parent.length; i++) {
+                int left = 2 * i;
+                parent[i] = left + 1 < level.length ? hashNode(level[left], level[left + 1], digest) : level[left];
+            }
+            this.levels.add(parent);
+            level = parent;
+        }
+    }
+
+    public byte[] root() {
+        return this.levels.get(this.levels.size() - 1)[0];
+    }
+
+    public int size() {
+        return this.levels.get(0).length;
+    }
+
+    /**
+     * @return The siblings on the path from the leaf to the root, lowest first.
+     * Levels where the node has no sibling are left out.
+     */
+    public List<byte[]> path(int leafIndex) {
+        List<byte[]> path = new ArrayList<>();
+        int index = leafIndex;
+        for (int level = 0; level < this.levels.size() - 1; level++) {
+            byte[][] nodes = this.levels.get(level);
+            int sibling = index ^ 1;
+            if (sibling < nodes.length) {
+                path.add(nodes[sibling]);
+            }
+            index /= 2;
+        }
+        return path;
+    }
+
+    /**
+     * Recomputes the root from a leaf value and its path.
+     *
+     * @return The root, or null when the path does not fit the tree size.
+     */
+    public static byte[] rootOf(byte[] leaf, int leafIndex, int leafCount, List<byte[]> path, MessageDigest digest) {
+        if (leafIndex < 0 || leafIndex >= leafCount) {
+            return null;
+        }
+        byte[] node = hashLeaf(leaf, digest);
+        int index = leafIndex;
+        int count = leafCount;
+        int next = 0;
+        while (count > 1) {
+            int sibling = index ^ 1;
+            if (sibling < count) {
+                if (next == path.size()) {
+                    return null;
+                }
+                byte[] siblingNode = path.get(next++);
+                node = (index & 1) == 0 ? hashNode(node, siblingNode, digest) : hashNode(siblingNode, node, digest);
+            }
+            index /= 2;
+            count = (count + 1) / 2;
+        }
+        return next == path.size() ? node : null;
+    }
+
+    private static byte[] hashLeaf(byte[] leaf, MessageDigest digest) {
+        digest.update(LEAF_PREFIX);
+        return digest.digest(leaf);
+    }
+
+    private static byte[] hashNode(byte[] left, byte[] right, MessageDigest digest) {
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        return digest.digest(right);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.demo.signature.batch;
+/**
+ * This package is reserved for batched signing, where one private key
+ * operation signs a Merkle root over the signed attributes of several
+ * documents and each CMS carries its inclusion proof.
+ */
@@ -4,7 +4,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.GeneralSecurityException;
 
-import com.example.demo.helpers.SignTestPortHelper;
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.observability.SigningObservations.Flow;
+import com.example.demo.observability.SigningObservations.Phase;
 import com.example.demo.signature.SignatureConstraints;
 import com.itextpdf.kernel.pdf.PdfDictionary;
 import com.itextpdf.kernel.pdf.PdfName;
@@ -14,12 +17,17 @@ import com.itextpdf.signatures.IExternalSignatureContainer;
 public class DigestCalcBlankSignatureContainer implements IExternalSignatureContainer {
     private final PdfName filter;
     private final PdfName subFilter;
+    private final CryptoPrimitives cryptoPrimitives;
+    private final SigningObservations observations;
 
     private byte[] docBytesHash;
 
-    public DigestCalcBlankSignatureContainer(PdfName filter, PdfName subFilter) {
+    public DigestCalcBlankSignatureContainer(PdfName filter, PdfName subFilter, CryptoPrimitives cryptoPrimitives,
+            SigningObservations observations) {
         this.filter = filter;
         this.subFilter = subFilter;
+        this.cryptoPrimitives = cryptoPrimitives;
+        this.observations = observations;
     }
 
     public byte[] getDocBytesHash() {
@@ -28,7 +36,7 @@ public class DigestCalcBlankSignatureContainer implements IExternalSignatureCont
 
     public byte[] sign(InputStream docBytes) throws GeneralSecurityException {
         try {
-            docBytesHash = calcDocBytesHash(docBytes);
+            docBytesHash = observations.observe(Flow.REMOTE_START, Phase.DIGEST, () -> calcDocBytesHash(docBytes));
         } catch (IOException e) {
             throw new GeneralSecurityException(e);
         }
@@ -42,7 +50,7 @@ public class DigestCalcBlankSignatureContainer implements IExternalSignatureCont
   
     private byte[] calcDocBytesHash(InputStream docBytes) throws IOException, GeneralSecurityException {
         byte[] docBytesHash = null;
-        docBytesHash = DigestAlgorithms.digest(docBytes, SignTestPortHelper.getMessageDigest(SignatureConstraints.HASH_ALGORITHM));
+        docBytesHash = DigestAlgorithms.digest(docBytes, cryptoPrimitives.messageDigest(SignatureConstraints.HASH_ALGORITHM));
 
         return docBytesHash;
     }
@@ -0,0 +1,70 @@
+package com.example.demo.signature.containers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.observability.SigningObservations.Flow;
+import com.example.demo.observability.SigningObservations.Phase;
+import com.example.demo.signature.Pkcs7Signer;
+import com.example.demo.signature.SignatureConstraints;
+import com.example.demo.signature.identity.SigningIdentity;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.signatures.DigestAlgorithms;
+import com.itextpdf.signatures.IExternalSignatureContainer;
+
+/**
+ * Container used when the private key is available on the server. It digests
+ * the document ranges and builds the CMS in the same
+ * {@code PdfSigner.signExternalContainer} call, so the document is written only
+ * once instead of being pre-signed with a blank container and parsed again.
+ */
+public class LocalSigningContainer implements IExternalSignatureContainer {
+    private final Pkcs7Signer pkcs7Signer;
+    private final SigningIdentity identity;
+    private final PdfName filter;
+    private final PdfName subFilter;
+    private final CryptoPrimitives cryptoPrimitives;
+    private final SigningObservations observations;
+
+    private int containerSize;
+
+    public LocalSigningContainer(Pkcs7Signer pkcs7Signer, SigningIdentity identity, PdfName filter, PdfName subFilter,
+            CryptoPrimitives cryptoPrimitives, SigningObservations observations) {
+        this.pkcs7Signer = pkcs7Signer;
+        this.identity = identity;
+        this.filter = filter;
+        this.subFilter = subFilter;
+        this.cryptoPrimitives = cryptoPrimitives;
+        this.observations = observations;
+    }
+
+    public byte[] sign(InputStream docBytes) throws GeneralSecurityException {
+        byte[] container;
+        try {
+            byte[] docBytesHash = observations.observe(Flow.LOCAL, Phase.DIGEST,
+                    () -> DigestAlgorithms.digest(docBytes, cryptoPrimitives.messageDigest(SignatureConstraints.HASH_ALGORITHM)));
+            container = observations.observe(Flow.LOCAL, Phase.CMS, () -> pkcs7Signer.sign(docBytesHash, identity));
+        } catch (IOException e) {
+            throw new GeneralSecurityException(e);
+        }
+        containerSize = container.length;
+        return container;
+    }
+
+    /**
+     * @return The size of the last container built, so a signature that did not
+     * fit its placeholder can be retried with the right size.
+     */
+    public int getContainerSize() {
+        return containerSize;
+    }
+
+    public void modifySigningDictionary(PdfDictionary signDic) {
+        signDic.put(PdfName.Filter, filter);
+        signDic.put(PdfName.SubFilter, subFilter);
+    }
+}
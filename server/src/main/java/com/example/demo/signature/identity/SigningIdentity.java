@@ -0,0 +1,28 @@
+package com.example.demo.signature.identity;
+
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+
+import lombok.Getter;
+
+/**
+ * A decoded signing identity: the private key and its certificate chain,
+ * ready to be handed to a {@link com.example.demo.signature.Pkcs7Signer}.
+ */
+@Getter
+public final class SigningIdentity {
+    /**
+     * The name the identity was registered or resolved with.
+     */
+    private final String name;
+
+    private final PrivateKey privateKey;
+
+    private final Certificate[] certificateChain;
+
+    public SigningIdentity(String name, PrivateKey privateKey, Certificate[] certificateChain) {
+        this.name = name;
+        this.privateKey = privateKey;
+        this.certificateChain = certificateChain;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.demo.signature.identity;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.helpers.Pkcs12FileHelper;
+
+/**
+ * Keeps the decoded signing identities in memory so the PKCS#12 keystore is
+ * only opened (and its PBE key derivation only paid) once per identity.
+ *
+ * Identities are keyed by name, which defaults to the keystore location. The
+ * registry holds at most {@code signing.identities.max-entries} identities in
+ * LRU order, drops the ones not used for {@code signing.identities.idle-timeout}
+ * and reloads an identity when its keystore file is modified on disk.
+ */
+@Component
+public class SigningIdentityRegistry {
+    private static final int PASSWORD_SALT_LENGTH = 16;
+
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final int maxEntries;
+
+    private final long idleTimeoutMillis;
+
+    private final long reloadCheckMillis;
+
+    private final Map<String, CompletableFuture<Entry>> entries;
+
+    public SigningIdentityRegistry(
+            @Value("${signing.identities.max-entries:16}") int maxEntries,
+            @Value("${signing.identities.idle-timeout:30m}") Duration idleTimeout,
+            @Value("${signing.identities.reload-check-interval:5s}") Duration reloadCheckInterval) {
+        this.maxEntries = maxEntries;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.reloadCheckMillis = reloadCheckInterval.toMillis();
+        this.entries = new LinkedHashMap<>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Entry>> eldest) {
+                return size() > SigningIdentityRegistry.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Resolves the identity stored in the given keystore, using the keystore
+     * location as its name.
+     *
+     * @param keyStoreLocation Spring resource location, e.g. {@code /certificates/new.p12}
+     * (classpath) or {@code file:/etc/signing/server.p12}.
+     * @param password Password of both the keystore and the key entry.
+     */
+    public SigningIdentity resolve(String keyStoreLocation, char[] password) throws GeneralSecurityException, IOException {
+        return this.resolve(keyStoreLocation, keyStoreLocation, password, password);
+    }
+
+    /**
+     * Resolves a named identity, loading its keystore only when it is not cached,
+     * when it was modified on disk since it was loaded or when a different
+     * password is supplied.
+     *
+     * The registry lock is only held to look up and install entries: the
+     * keystore is decoded outside of it, so a load only holds up the callers
+     * resolving that same name, which wait for it instead of decoding it again.
+     * A caller supplying other passwords than the cached entry decodes the
+     * keystore on its own and leaves the entry in place if that fails.
+     */
+    public SigningIdentity resolve(String name, String keyStoreLocation, char[] keyStorePassword, char[] keyPassword)
+            throws GeneralSecurityException, IOException {
+        while (true) {
+            long now = System.currentTimeMillis();
+            CompletableFuture<Entry> cached;
+            synchronized (this.entries) {
+                this.evictIdle(now);
+                cached = this.entries.get(name);
+            }
+
+            Entry entry = cached != null ? await(cached) : null;
+            if (entry != null && entry.location.equals(keyStoreLocation) && !this.isStale(entry, now)) {
+                if (entry.matches(keyStorePassword, keyPassword)) {
+                    entry.lastAccess = now;
+                    return entry.identity;
+                }
+                // Other credentials: the cached entry is only replaced once they prove
+                // valid, so a wrong password does not evict the identity
+                Entry loaded = this.load(name, keyStoreLocation, keyStorePassword, keyPassword, now);
+                synchronized (this.entries) {
+                    if (this.entries.get(name) == cached) {
+                        this.entries.put(name, CompletableFuture.completedFuture(loaded));
+                    }
+                }
+                return loaded.identity;
+            }
+
+            CompletableFuture<Entry> loading = new CompletableFuture<>();
+            synchronized (this.entries) {
+                CompletableFuture<Entry> current = this.entries.get(name);
+                if (current != null && current != cached) {
+                    // Another caller started loading this name meanwhile: use its result
+                    continue;
+                }
+                this.entries.put(name, loading);
+            }
+
+            try {
+                entry = this.load(name, keyStoreLocation, keyStorePassword, keyPassword, now);
+            } catch (GeneralSecurityException | IOException | RuntimeException e) {
+                synchronized (this.entries) {
+                    this.entries.remove(name, loading);
+                }
+                loading.completeExceptionally(e);
+                throw e;
+            }
+            loading.complete(entry);
+            return entry.identity;
+        }
+    }
+
+    /**
+     * Drops a cached identity so the next resolution reloads it.
+     */
+    public void evict(String name) {
+        synchronized (this.entries) {
+            this.entries.remove(name);
+        }
+    }
+
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    private void evictIdle(long now) {
+        Iterator<CompletableFuture<Entry>> iterator = this.entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getNow(null);
+            if (entry != null && now - entry.lastAccess > this.idleTimeoutMillis) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Waits for an entry being loaded by another caller. A failed load is
+     * reported as a missing entry, so the waiting caller loads it with its
+     * own location and passwords.
+     */
+    private static Entry await(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    private boolean isStale(Entry entry, long now) {
+        if (now - entry.lastModifiedCheck < this.reloadCheckMillis) {
+            return false;
+        }
+        entry.lastModifiedCheck = now;
+        return lastModified(entry.resource) != entry.lastModified;
+    }
+
+    private Entry load(String name, String location, char[] keyStorePassword, char[] keyPassword, long now)
+            throws GeneralSecurityException, IOException {
+        Resource resource = this.resourceLoader.getResource(location);
+        long lastModified = lastModified(resource);
+
+        KeyStore.PrivateKeyEntry keyEntry;
+        try (InputStream keyStoreStream = resource.getInputStream()) {
+            keyEntry = Pkcs12FileHelper.readFirstEntry(keyStoreStream, keyStorePassword, keyPassword);
+        } catch (FileNotFoundException e) {
+            throw new FileNotFoundException("Could not load keystore: " + location + ". " + e.getMessage());
+        }
+        if (keyEntry == null) {
+            throw new GeneralSecurityException("No private key entry found in keystore: " + location);
+        }
+
+        byte[] salt = new byte[PASSWORD_SALT_LENGTH];
+        this.random.nextBytes(salt);
+
+        Entry entry = new Entry();
+        entry.location = location;
+        entry.resource = resource;
+        entry.identity = new SigningIdentity(name, keyEntry.getPrivateKey(), keyEntry.getCertificateChain());
+        entry.salt = salt;
+        entry.passwordDigest = digestPasswords(salt, keyStorePassword, keyPassword);
+        entry.lastModified = lastModified;
+        entry.lastModifiedCheck = now;
+        entry.lastAccess = now;
+        return entry;
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Salted digest of the passwords, so a cached key is never handed out for
+     * a password other than the one it was decrypted with, without keeping the
+     * password itself in memory.
+     */
+    private static byte[] digestPasswords(byte[] salt, char[] keyStorePassword, char[] keyPassword) throws GeneralSecurityException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(salt);
+        digest.update(encode(keyStorePassword));
+        digest.update((byte) 0);
+        digest.update(encode(keyPassword));
+        return digest.digest();
+    }
+
+    private static byte[] encode(char[] password) {
+        if (password == null) {
+            return new byte[0];
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static final class Entry {
+        private String location;
+        private Resource resource;
+        private SigningIdentity identity;
+        private byte[] salt;
+        private byte[] passwordDigest;
+        private long lastModified;
+        private volatile long lastModifiedCheck;
+        private volatile long lastAccess;
+
+        private boolean matches(char[] keyStorePassword, char[] keyPassword) throws GeneralSecurityException {
+            return MessageDigest.isEqual(this.passwordDigest, digestPasswords(this.salt, keyStorePassword, keyPassword));
+        }
+    }
+}
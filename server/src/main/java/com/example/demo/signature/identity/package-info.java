@@ -0,0 +1,6 @@
+package com.example.demo.signature.identity;
+/**
+ * This package is reserved for the server side signing identities, that is,
+ * the private keys and certificate chains loaded from keystores so they can
+ * be reused between signatures instead of being decoded on every request.
+ */
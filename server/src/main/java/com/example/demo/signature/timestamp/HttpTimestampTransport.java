@@ -0,0 +1,51 @@
+package com.example.demo.signature.timestamp;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * RFC 3161 over HTTP POST, sharing one keep-alive client, so consecutive
+ * timestamps reuse the pooled connections to the TSA.
+ */
+@Component
+public class HttpTimestampTransport implements TimestampTransport {
+    private static final String TIMESTAMP_QUERY = "application/timestamp-query";
+
+    private final HttpClient httpClient;
+
+    private final Duration timeout;
+
+    public HttpTimestampTransport(@Value("${signing.tsa.timeout:PT10S}") Duration timeout) {
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public byte[] send(String url, byte[] encodedRequest) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(this.timeout)
+                .header("Content-Type", TIMESTAMP_QUERY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(encodedRequest))
+                .build();
+        try {
+            HttpResponse<byte[]> response = this.httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IOException("TSA " + url + " answered HTTP " + response.statusCode());
+            }
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while contacting TSA " + url, e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.signature.timestamp;
+
+import java.io.IOException;
+
+/**
+ * Transport used to reach the timestamp authority.
+ */
+public interface TimestampTransport {
+    /**
+     * @param url TSA URL, from {@code signing.tsa.url}.
+     * @param encodedRequest DER encoded {@code TimeStampReq}.
+     * @return DER encoded {@code TimeStampResp}.
+     */
+    byte[] send(String url, byte[] encodedRequest) throws IOException;
+}
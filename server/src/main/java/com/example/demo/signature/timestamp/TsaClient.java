@@ -0,0 +1,236 @@
+package com.example.demo.signature.timestamp;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.SignerId;
+import org.bouncycastle.cms.SignerInformationVerifier;
+import org.bouncycastle.tsp.TSPException;
+import org.bouncycastle.tsp.TimeStampRequest;
+import org.bouncycastle.tsp.TimeStampRequestGenerator;
+import org.bouncycastle.tsp.TimeStampResponse;
+import org.bouncycastle.tsp.TimeStampToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.itextpdf.signatures.DigestAlgorithms;
+import com.itextpdf.signatures.ITSAClient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * RFC 3161 client used by iText to add the signature timestamp. Disabled while
+ * {@code signing.tsa.url} is empty.
+ *
+ * At most {@code signing.tsa.max-in-flight} requests are sent at once, callers
+ * over the limit wait up to {@code signing.tsa.acquire-timeout}. Concurrent
+ * requests for the same imprint share a single TSA round trip. A TimeStampReq
+ * carries exactly one message imprint, so distinct imprints cannot be merged
+ * into one request. Responses are checked against the request and the token
+ * signature is verified; the verifier of each TSA certificate is built once
+ * and cached.
+ */
+@Component
+public class TsaClient implements ITSAClient {
+    /**
+     * Bytes added to the largest token seen when estimating the next one.
+     */
+    private static final int TOKEN_SIZE_MARGIN = 256;
+
+    private final TimestampTransport transport;
+
+    private final CryptoPrimitives cryptoPrimitives;
+
+    private final String url;
+
+    private final String digestAlgorithm;
+
+    private final ASN1ObjectIdentifier policy;
+
+    private final Semaphore permits;
+
+    private final long acquireTimeoutMillis;
+
+    private final SecureRandom nonces = new SecureRandom();
+
+    private final Map<String, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+
+    private final Map<SignerId, SignerInformationVerifier> verifiers = new ConcurrentHashMap<>();
+
+    private volatile int tokenSizeEstimate;
+
+    private final Counter issued;
+
+    private final Counter coalesced;
+
+    private final Counter failed;
+
+    public TsaClient(TimestampTransport transport, CryptoPrimitives cryptoPrimitives, MeterRegistry meterRegistry,
+            @Value("${signing.tsa.url:}") String url,
+            @Value("${signing.tsa.digest-algorithm:SHA-256}") String digestAlgorithm,
+            @Value("${signing.tsa.policy:}") String policy,
+            @Value("${signing.tsa.max-in-flight:16}") int maxInFlight,
+            @Value("${signing.tsa.acquire-timeout:PT5S}") Duration acquireTimeout,
+            @Value("${signing.tsa.token-size-estimate:4096}") int tokenSizeEstimate) {
+        this.transport = transport;
+        this.cryptoPrimitives = cryptoPrimitives;
+        this.url = url;
+        this.digestAlgorithm = digestAlgorithm;
+        this.policy = policy.isBlank() ? null : new ASN1ObjectIdentifier(policy);
+        this.permits = new Semaphore(maxInFlight, true);
+        this.acquireTimeoutMillis = acquireTimeout.toMillis();
+        this.tokenSizeEstimate = tokenSizeEstimate;
+        this.issued = Counter.builder("signing.tsa.requests")
+                .tag("result", "issued")
+                .description("Timestamps obtained from the TSA")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("signing.tsa.requests")
+                .tag("result", "coalesced")
+                .description("Timestamps served by a request already in flight for the same imprint")
+                .register(meterRegistry);
+        this.failed = Counter.builder("signing.tsa.requests")
+                .tag("result", "failed")
+                .description("Timestamp requests that failed or could not get a permit")
+                .register(meterRegistry);
+        Gauge.builder("signing.tsa.in-flight", this.permits, permits -> maxInFlight - permits.availablePermits())
+                .description("Timestamp requests currently sent to the TSA")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return !this.url.isBlank();
+    }
+
+    /**
+     * @return The configured estimate, raised to the largest token received so far.
+     */
+    @Override
+    public int getTokenSizeEstimate() {
+        return this.tokenSizeEstimate;
+    }
+
+    @Override
+    public MessageDigest getMessageDigest() throws GeneralSecurityException {
+        return this.cryptoPrimitives.externalDigest().getMessageDigest(this.digestAlgorithm);
+    }
+
+    /**
+     * @param imprint Digest of the signature value, computed with {@link #getMessageDigest()}.
+     * @return The DER encoded timestamp token.
+     */
+    @Override
+    public byte[] getTimeStampToken(byte[] imprint) throws IOException, TSPException {
+        String key = HexFormat.of().formatHex(imprint);
+        CompletableFuture<byte[]> own = new CompletableFuture<>();
+        CompletableFuture<byte[]> inFlight = this.pending.putIfAbsent(key, own);
+        if (inFlight != null) {
+            this.coalesced.increment();
+            return await(inFlight);
+        }
+
+        try {
+            byte[] token = this.request(imprint);
+            own.complete(token);
+            return token;
+        } catch (IOException | TSPException | RuntimeException e) {
+            this.failed.increment();
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.pending.remove(key, own);
+        }
+    }
+
+    private byte[] request(byte[] imprint) throws IOException, TSPException {
+        TimeStampRequestGenerator generator = new TimeStampRequestGenerator();
+        generator.setCertReq(true);
+        if (this.policy != null) {
+            generator.setReqPolicy(this.policy);
+        }
+        TimeStampRequest request = generator.generate(new ASN1ObjectIdentifier(DigestAlgorithms.getAllowedDigest(this.digestAlgorithm)),
+                imprint, BigInteger.valueOf(this.nonces.nextLong()));
+
+        byte[] encodedResponse;
+        this.acquire();
+        try {
+            encodedResponse = this.transport.send(this.url, request.getEncoded());
+        } finally {
+            this.permits.release();
+        }
+
+        TimeStampResponse response = new TimeStampResponse(encodedResponse);
+        response.validate(request);
+        TimeStampToken token = response.getTimeStampToken();
+        if (token == null) {
+            throw new TSPException("TSA " + this.url + " refused the request: " + response.getStatusString());
+        }
+        token.validate(this.verifierOf(token));
+
+        byte[] encoded = token.getEncoded();
+        if (encoded.length + TOKEN_SIZE_MARGIN > this.tokenSizeEstimate) {
+            this.tokenSizeEstimate = encoded.length + TOKEN_SIZE_MARGIN;
+        }
+        this.issued.increment();
+        return encoded;
+    }
+
+    private void acquire() throws IOException {
+        try {
+            if (!this.permits.tryAcquire(this.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Too many timestamp requests in flight to " + this.url);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the TSA", e);
+        }
+    }
+
+    private SignerInformationVerifier verifierOf(TimeStampToken token) throws TSPException {
+        SignerInformationVerifier verifier = this.verifiers.get(token.getSID());
+        if (verifier != null) {
+            return verifier;
+        }
+        Collection<X509CertificateHolder> matches = token.getCertificates().getMatches(token.getSID());
+        if (matches.isEmpty()) {
+            throw new TSPException("TSA " + this.url + " did not include its certificate");
+        }
+        try {
+            verifier = this.cryptoPrimitives.verifier(matches.iterator().next());
+        } catch (Exception e) {
+            throw new TSPException("Unusable TSA certificate", e);
+        }
+        this.verifiers.putIfAbsent(token.getSID(), verifier);
+        return verifier;
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> inFlight) throws IOException, TSPException {
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the TSA", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TSPException) {
+                throw (TSPException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.demo.signature.timestamp;
+/**
+ * This package is reserved for the RFC 3161 timestamping client that adds
+ * signature timestamps to the containers built by both signing flows.
+ */
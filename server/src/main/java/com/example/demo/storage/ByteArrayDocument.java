@@ -0,0 +1,42 @@
+package com.example.demo.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import com.itextpdf.io.source.IRandomAccessSource;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+
+/**
+ * A document held in a heap byte array.
+ */
+public class ByteArrayDocument implements DocumentSource {
+    private final byte[] bytes;
+
+    public ByteArrayDocument(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public long size() {
+        return bytes.length;
+    }
+
+    @Override
+    public InputStream openStream() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public IRandomAccessSource openRandomAccess() {
+        return new RandomAccessSourceFactory().createSource(bytes);
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+/**
+ * A sink that keeps the generated document in memory.
+ */
+public class ByteArrayDocumentSink implements DocumentSink {
+    private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+    @Override
+    public OutputStream openStream() {
+        return stream;
+    }
+
+    @Override
+    public String getWorkDirectory() {
+        return null;
+    }
+
+    @Override
+    public DocumentSource toSource() {
+        return new ByteArrayDocument(stream.toByteArray());
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Decides where documents are buffered while they are processed. Documents up
+ * to {@code signing.large-document.threshold} stay in memory; larger ones are
+ * spooled to temporary files in {@code signing.large-document.directory} and read
+ * back through memory-mapped sources, so heap use depends on the document
+ * structure instead of its size.
+ */
+@Component
+public class DocumentBuffers {
+    private static final String TEMP_FILE_PREFIX = "signing-";
+
+    private final long threshold;
+
+    private final Path directory;
+
+    public DocumentBuffers(
+            @Value("${signing.large-document.threshold:16MB}") DataSize threshold,
+            @Value("${signing.large-document.directory:${java.io.tmpdir}}") String directory) throws IOException {
+        this.threshold = threshold.toBytes();
+        this.directory = Files.createDirectories(Path.of(directory));
+    }
+
+    public boolean isLarge(long size) {
+        return size > threshold;
+    }
+
+    public DocumentSource wrap(byte[] bytes) {
+        return new ByteArrayDocument(bytes);
+    }
+
+    /**
+     * Buffers an upload. Large uploads are transferred straight to a temporary
+     * file without passing through a byte array.
+     */
+    public DocumentSource receive(MultipartFile file) throws IOException {
+        if (!this.isLarge(file.getSize())) {
+            return new ByteArrayDocument(file.getBytes());
+        }
+        Path path = this.createTempFile(".pdf");
+        try {
+            file.transferTo(path);
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return new FileDocument(path, true);
+    }
+
+    /**
+     * Buffers a document of unknown length. It is kept in memory until it grows
+     * past the threshold, then spilled to a temporary file. The stream is read
+     * to its end but not closed, so callers reading untrusted input bound it,
+     * e.g. with a {@link SizeLimitedInputStream}.
+     */
+    public DocumentSource receive(InputStream input) throws IOException {
+        byte[] head = input.readNBytes((int) Math.min(threshold + 1, Integer.MAX_VALUE - 8));
+        if (!this.isLarge(head.length)) {
+            return new ByteArrayDocument(head);
+        }
+        Path path = this.createTempFile(".pdf");
+        try (OutputStream output = Files.newOutputStream(path)) {
+            output.write(head);
+            input.transferTo(output);
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return new FileDocument(path, true);
+    }
+
+    /**
+     * Creates a sink for a document expected to be around the given size.
+     */
+    public DocumentSink newSink(long expectedSize) throws IOException {
+        if (!this.isLarge(expectedSize)) {
+            return new ByteArrayDocumentSink();
+        }
+        return new FileDocumentSink(this.createTempFile(".pdf"));
+    }
+
+    public Path createTempFile(String suffix) throws IOException {
+        return Files.createTempFile(directory, TEMP_FILE_PREFIX, suffix);
+    }
+}
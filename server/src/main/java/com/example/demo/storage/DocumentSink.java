@@ -0,0 +1,25 @@
+package com.example.demo.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A destination for a generated PDF. Once written, the content is handed over
+ * with {@link #toSource()}; closing a sink that was not handed over discards it.
+ */
+public interface DocumentSink extends Closeable {
+    OutputStream openStream() throws IOException;
+
+    /**
+     * @return Directory iText may use for its own temporary files while writing
+     * into this sink, or null when the sink is held in memory.
+     */
+    String getWorkDirectory();
+
+    /**
+     * Closes the sink for writing and returns its content as a source. The
+     * returned source owns the content from then on.
+     */
+    DocumentSource toSource() throws IOException;
+}
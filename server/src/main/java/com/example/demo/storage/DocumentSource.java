@@ -0,0 +1,42 @@
+package com.example.demo.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.itextpdf.io.source.IRandomAccessSource;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.ReaderProperties;
+
+/**
+ * A readable PDF document, either held in memory or backed by a file.
+ * Closing the source releases whatever backs it (temporary files included).
+ */
+public interface DocumentSource extends Closeable {
+    /**
+     * @return The document length in bytes.
+     */
+    long size();
+
+    InputStream openStream() throws IOException;
+
+    /**
+     * Opens a random access view over the document. File backed documents are
+     * memory-mapped, so the bytes are never copied to the heap.
+     */
+    IRandomAccessSource openRandomAccess() throws IOException;
+
+    default PdfReader openReader() throws IOException {
+        return new PdfReader(this.openRandomAccess(), new ReaderProperties());
+    }
+
+    /**
+     * Copies the whole document to the heap. Should only be used where a byte
+     * array is really required.
+     */
+    default byte[] toByteArray() throws IOException {
+        try (InputStream stream = this.openStream()) {
+            return stream.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.itextpdf.io.source.IRandomAccessSource;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+
+/**
+ * A document backed by a file. Random access goes through a memory-mapped
+ * source, so reading it with iText does not copy the file into the heap.
+ */
+public class FileDocument implements DocumentSource {
+    private final Path path;
+
+    private final boolean deleteOnClose;
+
+    public FileDocument(Path path, boolean deleteOnClose) {
+        this.path = path;
+        this.deleteOnClose = deleteOnClose;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public long size() {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public IRandomAccessSource openRandomAccess() throws IOException {
+        return new RandomAccessSourceFactory()
+                .setForceRead(false)
+                .setUsePlainRandomAccess(false)
+                .createBestSource(path.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (deleteOnClose) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A sink that writes the generated document to a temporary file.
+ */
+public class FileDocumentSink implements DocumentSink {
+    private final Path path;
+
+    private OutputStream stream;
+
+    private boolean handedOver;
+
+    public FileDocumentSink(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public OutputStream openStream() throws IOException {
+        if (stream == null) {
+            stream = new BufferedOutputStream(Files.newOutputStream(path));
+        }
+        return stream;
+    }
+
+    @Override
+    public String getWorkDirectory() {
+        return path.getParent().toString();
+    }
+
+    @Override
+    public DocumentSource toSource() throws IOException {
+        if (stream != null) {
+            stream.close();
+        }
+        handedOver = true;
+        return new FileDocument(path, true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (stream != null) {
+            stream.close();
+        }
+        if (!handedOver) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
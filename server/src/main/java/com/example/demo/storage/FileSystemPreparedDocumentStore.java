@@ -0,0 +1,106 @@
+package com.example.demo.storage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link PreparedDocumentStore} keeping the documents as files in a local
+ * directory. Reads are memory-mapped through {@link FileDocument}. Documents
+ * expire after {@code signing.staging.ttl}, which defaults to the session
+ * timeout since the handle is useless once the session is gone.
+ */
+@Component
+public class FileSystemPreparedDocumentStore implements PreparedDocumentStore {
+    private static final Pattern HANDLE_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final String EXTENSION = ".pdf";
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final Path directory;
+
+    private final Duration timeToLive;
+
+    public FileSystemPreparedDocumentStore(
+            @Value("${signing.staging.directory:${java.io.tmpdir}/signing-staging}") String directory,
+            @Value("${signing.staging.ttl:${server.servlet.session.timeout:30m}}") Duration timeToLive) throws IOException {
+        this.directory = Files.createDirectories(Path.of(directory));
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public String put(DocumentSource document) throws IOException {
+        Path temporary = Files.createTempFile(this.directory, "staging-", ".tmp");
+        try {
+            try (InputStream input = document.openStream(); OutputStream output = Files.newOutputStream(temporary)) {
+                input.transferTo(output);
+            }
+            byte[] id = new byte[32];
+            this.random.nextBytes(id);
+            String handle = HexFormat.of().formatHex(id);
+            Path target = this.resolve(handle);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            return handle;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public DocumentSource get(String handle) throws IOException {
+        Path path = this.resolve(handle);
+        if (!Files.exists(path) || this.isExpired(path, System.currentTimeMillis())) {
+            throw new FileNotFoundException("Prepared document not found or expired: " + handle);
+        }
+        return new FileDocument(path, false);
+    }
+
+    @Override
+    public void remove(String handle) throws IOException {
+        Files.deleteIfExists(this.resolve(handle));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${signing.staging.cleanup-interval:PT5M}")
+    public void purgeExpired() throws IOException {
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+            for (Path file : files) {
+                try {
+                    if (this.isExpired(file, now)) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (NoSuchFileException e) {
+                    // removed concurrently by a completed signature
+                }
+            }
+        }
+    }
+
+    private boolean isExpired(Path path, long now) throws IOException {
+        return now - Files.getLastModifiedTime(path).toMillis() > this.timeToLive.toMillis();
+    }
+
+    private Path resolve(String handle) {
+        if (handle == null || !HANDLE_PATTERN.matcher(handle).matches()) {
+            throw new IllegalArgumentException("Invalid prepared document handle");
+        }
+        return this.directory.resolve(handle + EXTENSION);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.storage;
+
+import java.io.IOException;
+
+/**
+ * Staging area for the documents prepared in the first remote signing step.
+ * Each stored document gets its own random handle, so only that small handle
+ * has to be kept in the {@link com.example.demo.session.SigningSession} between
+ * the two steps, instead of the whole prepared PDF. Sessions staging identical
+ * documents get distinct handles, so removing one never affects the other.
+ */
+public interface PreparedDocumentStore {
+    /**
+     * Stores the document.
+     *
+     * @return The document handle, 32 random bytes hex encoded.
+     */
+    String put(DocumentSource document) throws IOException;
+
+    /**
+     * Opens a stored document for reading.
+     *
+     * @throws java.io.FileNotFoundException If the handle is unknown or expired.
+     */
+    DocumentSource get(String handle) throws IOException;
+
+    void remove(String handle) throws IOException;
+
+    /**
+     * Removes the documents stored for longer than the store time to live.
+     */
+    void purgeExpired() throws IOException;
+}
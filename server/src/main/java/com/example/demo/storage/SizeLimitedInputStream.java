@@ -0,0 +1,69 @@
+package com.example.demo.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails once more than a given number of bytes were read through it. Used
+ * where the length of a stream is not known up front, such as request bodies
+ * and decompressed ZIP entries, so they cannot fill the disk.
+ */
+public class SizeLimitedInputStream extends FilterInputStream {
+    private final long limit;
+
+    private final String description;
+
+    private long count;
+
+    private boolean exceeded;
+
+    /**
+     * @param description What is read, used in the error message, e.g. {@code "ZIP entry"}.
+     */
+    public SizeLimitedInputStream(InputStream in, long limit, String description) {
+        super(in);
+        this.limit = limit;
+        this.description = description;
+    }
+
+    /**
+     * Whether reading failed because the limit was exceeded.
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            this.count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0) {
+            this.count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        this.count(skipped);
+        return skipped;
+    }
+
+    private void count(long bytes) throws IOException {
+        this.count += bytes;
+        if (this.count > this.limit) {
+            this.exceeded = true;
+            throw new IOException(this.description + " exceeds the limit of " + this.limit + " bytes");
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.demo.storage;
+/**
+ * This package is reserved for the document buffering logic, that is,
+ * where the PDF bytes live while a request is processed: in memory for
+ * regular documents or in memory-mapped temporary files for large ones.
+ */
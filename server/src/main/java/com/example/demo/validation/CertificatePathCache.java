@@ -0,0 +1,148 @@
+package com.example.demo.validation;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertPath;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache of the certification paths successfully built by PKIX, keyed by the
+ * SHA-256 fingerprints of the certificates the signature carried. A hit lets
+ * the validation skip the certificate conversion and the path building.
+ *
+ * An entry expires at the earliest {@code notAfter} of the path (trust anchor
+ * included) or after {@code validation.revocation.freshness}, whichever comes
+ * first, so a path is never trusted longer than its revocation data would be.
+ */
+@Component
+public class CertificatePathCache {
+    private final long freshnessMillis;
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public CertificatePathCache(MeterRegistry meterRegistry,
+            @Value("${validation.revocation.freshness:1h}") Duration freshness,
+            @Value("${validation.certpath-cache.max-entries:1000}") int maxEntries) {
+        this.freshnessMillis = freshness.toMillis();
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > CertificatePathCache.this.maxEntries;
+            }
+        };
+        this.hits = Counter.builder("validation.certpath.cache")
+                .tag("result", "hit")
+                .description("Certificate path lookups served from the cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("validation.certpath.cache")
+                .tag("result", "miss")
+                .description("Certificate path lookups that required a PKIX build")
+                .register(meterRegistry);
+        Gauge.builder("validation.certpath.cache.size", this, CertificatePathCache::size)
+                .description("Certificate paths currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Computes the cache key of a signature's certificates: the signer
+     * fingerprint followed by the sorted fingerprints of the other certificates,
+     * so the order they were stored in does not matter.
+     */
+    public String keyOf(X509CertificateHolder signerCert, Collection<X509CertificateHolder> certificates) throws IOException {
+        MessageDigest digest = sha256();
+        HexFormat hex = HexFormat.of();
+
+        List<String> others = new ArrayList<>();
+        for (X509CertificateHolder certificate : certificates) {
+            if (!certificate.equals(signerCert)) {
+                others.add(hex.formatHex(digest.digest(certificate.getEncoded())));
+            }
+        }
+        Collections.sort(others);
+
+        StringBuilder key = new StringBuilder(hex.formatHex(digest.digest(signerCert.getEncoded())));
+        for (String other : others) {
+            key.append(':').append(other);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return The cached path, or null if absent or expired.
+     */
+    public synchronized CertPath get(String key) {
+        Entry entry = this.entries.get(key);
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            this.entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        return entry.certPath;
+    }
+
+    public synchronized void put(String key, CertPath certPath, X509Certificate trustAnchor) {
+        long expiresAt = System.currentTimeMillis() + this.freshnessMillis;
+        for (Certificate certificate : certPath.getCertificates()) {
+            expiresAt = Math.min(expiresAt, ((X509Certificate) certificate).getNotAfter().getTime());
+        }
+        if (trustAnchor != null) {
+            expiresAt = Math.min(expiresAt, trustAnchor.getNotAfter().getTime());
+        }
+        this.entries.put(key, new Entry(certPath, expiresAt));
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final CertPath certPath;
+        private final long expiresAt;
+
+        private Entry(CertPath certPath, long expiresAt) {
+            this.certPath = certPath;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
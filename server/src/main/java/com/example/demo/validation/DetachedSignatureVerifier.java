@@ -0,0 +1,103 @@
+package com.example.demo.validation;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.cert.CertificateException;
+import java.util.Collection;
+import java.util.Map;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.cms.Attribute;
+import org.bouncycastle.asn1.cms.AttributeTable;
+import org.bouncycastle.asn1.cms.CMSAttributes;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.util.Selector;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.signature.batch.MerkleBatchProof;
+import com.itextpdf.kernel.pdf.PdfName;
+
+/**
+ * Verifies a detached CMS signature against a content digest computed
+ * elsewhere, such as by the {@link RevisionDigester}, so the signed bytes do
+ * not have to be fed through the signature again.
+ */
+@Component
+public class DetachedSignatureVerifier {
+    private final CryptoPrimitives cryptoPrimitives;
+
+    public DetachedSignatureVerifier(CryptoPrimitives cryptoPrimitives) {
+        this.cryptoPrimitives = cryptoPrimitives;
+    }
+
+    /**
+     * @return The OID of the digest algorithm the signer used, or null when the
+     * signature is not a detached CMS this verifier handles.
+     */
+    public String digestAlgorithmOid(SignedRevision revision) {
+        if (!PdfName.Adbe_pkcs7_detached.equals(revision.getSubFilter())
+                && !PdfName.ETSI_CAdES_DETACHED.equals(revision.getSubFilter())) {
+            return null;
+        }
+        try {
+            CMSSignedData signedData = new CMSSignedData(revision.getContents());
+            return signedData.getSignerInfos().getSigners().iterator().next().getDigestAlgOID();
+        } catch (CMSException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The value of the signed message digest attribute, or null when the
+     * contents are not a CMS with signed attributes.
+     */
+    public byte[] signedMessageDigest(byte[] contents) {
+        try {
+            SignerInformation signer = new CMSSignedData(contents).getSignerInfos().getSigners().iterator().next();
+            AttributeTable signedAttributes = signer.getSignedAttributes();
+            Attribute messageDigest = signedAttributes == null ? null : signedAttributes.get(CMSAttributes.messageDigest);
+            return messageDigest == null ? null : ((ASN1OctetString) messageDigest.getAttrValues().getObjectAt(0)).getOctets();
+        } catch (CMSException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks that the message digest attribute matches the content digest and
+     * that the signature value is correct for the signer certificate. Batch
+     * signatures are checked through their {@link MerkleBatchProof}.
+     */
+    public boolean verify(byte[] contents, String digestAlgorithmOid, byte[] contentDigest)
+            throws CMSException, OperatorCreationException, CertificateException {
+        CMSSignedData signedData = new CMSSignedData(Map.of(digestAlgorithmOid, contentDigest), contents);
+        SignerInformation signer = signedData.getSignerInfos().getSigners().iterator().next();
+
+        @SuppressWarnings("unchecked")
+        Collection<X509CertificateHolder> matches = signedData.getCertificates().getMatches(
+                (Selector<X509CertificateHolder>) signer.getSID());
+        if (matches.isEmpty()) {
+            throw new CMSException("Signer certificate not found");
+        }
+        MerkleBatchProof batchProof = MerkleBatchProof.of(signer);
+        if (batchProof != null) {
+            try {
+                return MessageDigest.isEqual(contentDigest, this.signedMessageDigest(contents))
+                        && batchProof.verify(signer, matches.iterator().next(), this.cryptoPrimitives);
+            } catch (GeneralSecurityException | IOException e) {
+                throw new CMSException("Cannot verify the batch signature", e);
+            }
+        }
+        try {
+            return signer.verify(this.cryptoPrimitives.verifier(matches.iterator().next()));
+        } catch (CMSException e) {
+            // BC reports a message digest mismatch as an exception
+            return false;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo.validation;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.storage.DocumentSource;
+import com.itextpdf.io.source.IRandomAccessSource;
+
+/**
+ * Computes the digests of the signed ranges of every signature of a document
+ * in a single pass over the file.
+ *
+ * The file is read once in offset order while a running digest is kept per
+ * algorithm. Each {@code [0 a b c]} byte range forks that running digest at
+ * {@code a}, skips its own {@code /Contents} and then only hashes
+ * {@code [b, b + c)}, so the prefix shared by all the revisions is hashed once
+ * instead of once per signature. Byte ranges that do not start at 0 are
+ * hashed on their own, in the same pass.
+ */
+@Component
+public class RevisionDigester {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CryptoPrimitives cryptoPrimitives;
+
+    public RevisionDigester(CryptoPrimitives cryptoPrimitives) {
+        this.cryptoPrimitives = cryptoPrimitives;
+    }
+
+    /**
+     * @param byteRanges The {@code /ByteRange} of each signature.
+     * @param hashAlgorithms The digest algorithm (name or OID) of each signature, or null to skip it.
+     * @return The digest of each signature, in the same order. Null for skipped
+     * signatures and for byte ranges that are invalid for this file.
+     */
+    public List<byte[]> digest(DocumentSource file, List<long[]> byteRanges, List<String> hashAlgorithms) throws IOException, GeneralSecurityException {
+        long length = file.size();
+        List<Branch> branches = new ArrayList<>(byteRanges.size());
+        Map<String, MessageDigest> running = new HashMap<>();
+        TreeSet<Long> boundaries = new TreeSet<>();
+        boundaries.add(0L);
+        long lastFork = -1L;
+
+        for (int i = 0; i < byteRanges.size(); i++) {
+            String hashAlgorithm = hashAlgorithms.get(i);
+            long[] byteRange = byteRanges.get(i);
+            if (hashAlgorithm == null || !isValid(byteRange, length)) {
+                branches.add(null);
+                continue;
+            }
+
+            Branch branch = new Branch(hashAlgorithm, byteRange);
+            if (byteRange[0] == 0) {
+                // The first range is the shared prefix: fork the running digest at its end
+                branch.forkAt = byteRange[1];
+                branch.firstRange = 2;
+                if (!running.containsKey(hashAlgorithm)) {
+                    running.put(hashAlgorithm, this.cryptoPrimitives.externalDigest().getMessageDigest(hashAlgorithm));
+                }
+                lastFork = Math.max(lastFork, branch.forkAt);
+                boundaries.add(branch.forkAt);
+            } else {
+                branch.digest = this.cryptoPrimitives.externalDigest().getMessageDigest(hashAlgorithm);
+            }
+            for (int j = branch.firstRange; j < byteRange.length; j += 2) {
+                boundaries.add(byteRange[j]);
+                boundaries.add(byteRange[j] + byteRange[j + 1]);
+            }
+            branches.add(branch);
+        }
+
+        IRandomAccessSource source = file.openRandomAccess();
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            List<Long> points = new ArrayList<>(boundaries);
+            List<MessageDigest> consumers = new ArrayList<>();
+            for (int k = 0; k < points.size(); k++) {
+                long start = points.get(k);
+                for (Branch branch : branches) {
+                    if (branch != null && branch.digest == null && branch.forkAt == start) {
+                        branch.digest = fork(running.get(branch.hashAlgorithm));
+                    }
+                }
+                if (k + 1 == points.size()) {
+                    break;
+                }
+                long end = points.get(k + 1);
+
+                consumers.clear();
+                if (start < lastFork) {
+                    consumers.addAll(running.values());
+                }
+                for (Branch branch : branches) {
+                    if (branch != null && branch.digest != null && branch.covers(start, end)) {
+                        consumers.add(branch.digest);
+                    }
+                }
+                if (!consumers.isEmpty()) {
+                    feed(source, start, end, buffer, consumers);
+                }
+            }
+        } finally {
+            source.close();
+        }
+
+        List<byte[]> digests = new ArrayList<>(branches.size());
+        for (Branch branch : branches) {
+            digests.add(branch == null ? null : branch.digest.digest());
+        }
+        return digests;
+    }
+
+    private static void feed(IRandomAccessSource source, long start, long end, byte[] buffer, List<MessageDigest> consumers) throws IOException {
+        long position = start;
+        while (position < end) {
+            int read = source.get(position, buffer, 0, (int) Math.min(buffer.length, end - position));
+            if (read <= 0) {
+                throw new IOException("Unexpected end of document at offset " + position);
+            }
+            for (MessageDigest consumer : consumers) {
+                consumer.update(buffer, 0, read);
+            }
+            position += read;
+        }
+    }
+
+    private static MessageDigest fork(MessageDigest running) throws GeneralSecurityException {
+        try {
+            return (MessageDigest) running.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new GeneralSecurityException("Digest " + running.getAlgorithm() + " cannot be cloned", e);
+        }
+    }
+
+    /**
+     * A byte range is usable when it is made of offset/length pairs in
+     * increasing, non overlapping order inside the file.
+     */
+    private static boolean isValid(long[] byteRange, long length) {
+        if (byteRange == null || byteRange.length < 2 || byteRange.length % 2 != 0) {
+            return false;
+        }
+        long previousEnd = 0;
+        for (int i = 0; i < byteRange.length; i += 2) {
+            long start = byteRange[i];
+            long size = byteRange[i + 1];
+            if (start < previousEnd || size < 0 || start + size > length) {
+                return false;
+            }
+            previousEnd = start + size;
+        }
+        return true;
+    }
+
+    private static final class Branch {
+        private final String hashAlgorithm;
+        private final long[] byteRange;
+        private long forkAt = -1L;
+        private int firstRange;
+        private MessageDigest digest;
+
+        private Branch(String hashAlgorithm, long[] byteRange) {
+            this.hashAlgorithm = hashAlgorithm;
+            this.byteRange = byteRange;
+        }
+
+        private boolean covers(long start, long end) {
+            for (int j = firstRange; j < byteRange.length; j += 2) {
+                if (byteRange[j] <= start && end <= byteRange[j] + byteRange[j + 1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
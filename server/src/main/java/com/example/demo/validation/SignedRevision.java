@@ -0,0 +1,245 @@
+package com.example.demo.validation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfDate;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfIndirectReference;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfNumber;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfString;
+import com.itextpdf.signatures.PdfPKCS7;
+import com.itextpdf.signatures.PdfSignature;
+import com.itextpdf.signatures.SignatureUtil;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What is needed to verify one PDF signature without the {@link PdfDocument}:
+ * the signed byte ranges, the raw {@code /Contents} and the few dictionary
+ * entries reported back. Extracting it is cheap and must happen on the thread
+ * that owns the document; verifying it can then happen anywhere.
+ */
+@Getter
+@AllArgsConstructor
+public class SignedRevision {
+    /** Nesting depth beyond which form fields and page tree nodes are not followed. */
+    private static final int MAX_DEPTH = 32;
+
+    private final String name;
+
+    private final int revision;
+
+    private final int totalRevisions;
+
+    private final boolean coversWholeDocument;
+
+    private final long[] byteRange;
+
+    private final byte[] contents;
+
+    private final PdfName subFilter;
+
+    /**
+     * The {@code /Cert} entry, only used by {@code adbe.x509.rsa_sha1} signatures.
+     */
+    private final byte[] certificate;
+
+    private final String signName;
+
+    private final String reason;
+
+    private final String location;
+
+    private final String date;
+
+    /**
+     * Rectangle of the signature widget ({@code llx, lly, urx, ury}), null
+     * when the field has no widget.
+     */
+    private final float[] widgetRectangle;
+
+    /**
+     * Page of the signature widget, null when unknown.
+     */
+    private final Integer widgetPage;
+
+    /**
+     * Decodes the signature like {@link SignatureUtil#readSignatureData(String)}
+     * does, but without hashing the signed ranges: the result can be inspected
+     * but its integrity must be checked separately.
+     */
+    public PdfPKCS7 toPdfPKCS7() {
+        String provider = CryptoPrimitives.provider().getName();
+        PdfPKCS7 pkcs7 = PdfName.Adbe_x509_rsa_sha1.equals(subFilter)
+                ? new PdfPKCS7(contents, certificate, provider)
+                : new PdfPKCS7(contents, subFilter, provider);
+        if (signName != null) {
+            pkcs7.setSignName(signName);
+        }
+        if (reason != null) {
+            pkcs7.setReason(reason);
+        }
+        if (location != null) {
+            pkcs7.setLocation(location);
+        }
+        if (date != null) {
+            pkcs7.setSignDate(PdfDate.decode(date));
+        }
+        return pkcs7;
+    }
+
+    /**
+     * Reads every signature of the document, in the order of
+     * {@link SignatureUtil#getSignatureNames()} (oldest revision first).
+     */
+    public static List<SignedRevision> readAll(PdfDocument pdfDoc) {
+        return readAll(pdfDoc, new SignatureUtil(pdfDoc));
+    }
+
+    /**
+     * Same as {@link #readAll(PdfDocument)} with the caller's
+     * {@link SignatureUtil}, so the form is only read once. The widgets are
+     * found through the raw AcroForm field dictionaries and their page through
+     * the {@code /P} reference, without loading the form fields or the page
+     * list.
+     */
+    public static List<SignedRevision> readAll(PdfDocument pdfDoc, SignatureUtil signUtil) {
+        List<String> names = signUtil.getSignatureNames();
+        Map<String, PdfDictionary> fields = signatureFields(pdfDoc);
+        int totalRevisions = signUtil.getTotalRevisions();
+
+        List<SignedRevision> revisions = new ArrayList<>(names.size());
+        for (String name : names) {
+            PdfSignature signature = signUtil.getSignature(name);
+            PdfString cert = signature.getCert();
+            PdfString date = signature.getDate();
+            PdfDictionary widget = widgetOf(fields.get(name));
+            PdfArray rectangle = widget == null ? null : widget.getAsArray(PdfName.Rect);
+            revisions.add(new SignedRevision(name, signUtil.getRevision(name), totalRevisions,
+                    signUtil.signatureCoversWholeDocument(name), signature.getByteRange().toLongArray(),
+                    signature.getContents().getValueBytes(), signature.getSubFilter(),
+                    cert == null ? null : cert.getValueBytes(), signature.getName(), signature.getReason(), signature.getLocation(),
+                    date == null ? null : date.toUnicodeString(),
+                    rectangle == null ? null : cornersOf(rectangle.toRectangle()),
+                    widget == null ? null : pageNumberOf(widget.getAsDictionary(PdfName.P))));
+        }
+        return revisions;
+    }
+
+    /**
+     * Signature field dictionaries by fully qualified name, read straight from
+     * the AcroForm field tree.
+     */
+    private static Map<String, PdfDictionary> signatureFields(PdfDocument pdfDoc) {
+        Map<String, PdfDictionary> fields = new HashMap<>();
+        PdfDictionary acroForm = pdfDoc.getCatalog().getPdfObject().getAsDictionary(PdfName.AcroForm);
+        PdfArray roots = acroForm == null ? null : acroForm.getAsArray(PdfName.Fields);
+        if (roots != null) {
+            collectSignatureFields(roots, null, null, fields, 0);
+        }
+        return fields;
+    }
+
+    private static void collectSignatureFields(PdfArray kids, String parentName, PdfName parentType,
+            Map<String, PdfDictionary> fields, int depth) {
+        if (depth > MAX_DEPTH) {
+            return;
+        }
+        for (int i = 0; i < kids.size(); i++) {
+            PdfDictionary field = kids.getAsDictionary(i);
+            if (field == null) {
+                continue;
+            }
+            PdfString partialName = field.getAsString(PdfName.T);
+            if (partialName == null) {
+                // a widget of the parent field
+                continue;
+            }
+            String name = parentName == null ? partialName.toUnicodeString() : parentName + '.' + partialName.toUnicodeString();
+            PdfName type = field.getAsName(PdfName.FT) != null ? field.getAsName(PdfName.FT) : parentType;
+            if (PdfName.Sig.equals(type)) {
+                fields.putIfAbsent(name, field);
+            }
+            PdfArray children = field.getAsArray(PdfName.Kids);
+            if (children != null) {
+                collectSignatureFields(children, name, type, fields, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * The field itself when it is merged with its widget, otherwise its first
+     * widget kid.
+     */
+    private static PdfDictionary widgetOf(PdfDictionary field) {
+        if (field == null || field.containsKey(PdfName.Rect)) {
+            return field;
+        }
+        PdfArray kids = field.getAsArray(PdfName.Kids);
+        if (kids != null) {
+            for (int i = 0; i < kids.size(); i++) {
+                PdfDictionary kid = kids.getAsDictionary(i);
+                if (kid != null && kid.getAsString(PdfName.T) == null && kid.containsKey(PdfName.Rect)) {
+                    return kid;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static float[] cornersOf(Rectangle rectangle) {
+        return new float[]{rectangle.getLeft(), rectangle.getBottom(), rectangle.getRight(), rectangle.getTop()};
+    }
+
+    /**
+     * Numbers a page by walking up its {@code /Parent} chain and counting the
+     * pages of the kids before it at each level, so only the ancestors of the
+     * page and their direct kids are read.
+     *
+     * @return The page number, or null if the page is not properly linked in the page tree.
+     */
+    private static Integer pageNumberOf(PdfDictionary page) {
+        if (page == null) {
+            return null;
+        }
+        int number = 1;
+        PdfDictionary node = page;
+        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+            PdfDictionary parent = node.getAsDictionary(PdfName.Parent);
+            if (parent == null) {
+                return depth == 0 ? null : number;
+            }
+            PdfArray kids = parent.getAsArray(PdfName.Kids);
+            PdfIndirectReference reference = node.getIndirectReference();
+            if (kids == null || reference == null) {
+                return null;
+            }
+            boolean found = false;
+            for (int i = 0; i < kids.size() && !found; i++) {
+                PdfObject kid = kids.get(i, false);
+                if (reference.equals(kid)) {
+                    found = true;
+                    continue;
+                }
+                PdfDictionary sibling = kids.getAsDictionary(i);
+                PdfNumber count = sibling == null || !sibling.containsKey(PdfName.Kids) ? null : sibling.getAsNumber(PdfName.Count);
+                number += count == null ? 1 : count.intValue();
+            }
+            if (!found) {
+                return null;
+            }
+            node = parent;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.demo.validation;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.response.ValidationResult;
+import com.example.demo.services.ValidationService;
+import com.example.demo.validation.revocation.RevocationService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Content addressed cache of signature validation results.
+ *
+ * The key is the SHA-256 of the submitted bytes followed by the trust store
+ * and revocation data versions, so a new root or new CRL/OCSP data naturally
+ * misses. Both versions are digests of the data rather than local counters, so
+ * a key means the same results on every instance. The same key is used as the
+ * HTTP entity tag. Entries live in a size bounded in-memory LRU and, when
+ * {@code validation.result-cache.redis.enabled} is set, in Redis so they are
+ * shared between instances holding the same revocation data. Both tiers expire
+ * entries after {@code validation.revocation.freshness}.
+ */
+@Component
+public class ValidationResultCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ValidationResultCache.class);
+
+    private static final String REDIS_PREFIX = "validation-result:";
+
+    /** Length of the hex encoded SHA-256 the keys start with. */
+    private static final int HASH_LENGTH = 64;
+
+    private final ValidationService validationService;
+
+    private final RevocationService revocationService;
+
+    private final ObjectMapper objectMapper;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final long freshnessMillis;
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public ValidationResultCache(ValidationService validationService, RevocationService revocationService, ObjectMapper objectMapper,
+            ObjectProvider<StringRedisTemplate> redisTemplate, MeterRegistry meterRegistry,
+            @Value("${validation.revocation.freshness:1h}") Duration freshness,
+            @Value("${validation.result-cache.max-entries:1000}") int maxEntries,
+            @Value("${validation.result-cache.redis.enabled:false}") boolean redisEnabled) {
+        this.validationService = validationService;
+        this.revocationService = revocationService;
+        this.objectMapper = objectMapper;
+        this.redisTemplate = redisEnabled ? redisTemplate.getIfAvailable() : null;
+        this.freshnessMillis = freshness.toMillis();
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ValidationResultCache.this.maxEntries;
+            }
+        };
+        this.hits = Counter.builder("validation.result.cache")
+                .tag("result", "hit")
+                .description("Validation results served from the cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("validation.result.cache")
+                .tag("result", "miss")
+                .description("Validation results that had to be computed")
+                .register(meterRegistry);
+        Gauge.builder("validation.result.cache.size", this, ValidationResultCache::size)
+                .description("Validation results currently cached in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return The cache key, also used as entity tag, of the document under the
+     * current trust store and revocation data.
+     */
+    public String keyOf(byte[] document) {
+        return HexFormat.of().formatHex(sha256().digest(document)) + this.currentSuffix();
+    }
+
+    /**
+     * @return The cached result, or null if absent or expired.
+     */
+    public ValidationResult get(String key) {
+        ValidationResult result = this.getLocal(key);
+        if (result == null && this.redisTemplate != null) {
+            result = this.getRemote(key);
+            if (result != null) {
+                this.putLocal(key, result);
+            }
+        }
+        if (result == null) {
+            this.misses.increment();
+        } else {
+            this.hits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * @return Whether a result is cached under the key and the key was built
+     * under the current trust store and revocation data. A key from before a
+     * root change or a revocation update does not match, even while its entry
+     * has not expired yet.
+     */
+    public boolean contains(String key) {
+        String suffix = this.currentSuffix();
+        if (key.length() != HASH_LENGTH + suffix.length() || !key.endsWith(suffix)) {
+            return false;
+        }
+        return this.getLocal(key) != null || (this.redisTemplate != null && this.getRemote(key) != null);
+    }
+
+    public void put(String key, ValidationResult result) {
+        this.putLocal(key, result);
+        if (this.redisTemplate != null) {
+            try {
+                this.redisTemplate.opsForValue().set(REDIS_PREFIX + key, this.objectMapper.writeValueAsString(result),
+                        Duration.ofMillis(this.freshnessMillis));
+            } catch (JsonProcessingException | RuntimeException e) {
+                LOGGER.debug("Could not store validation result {} in Redis", key, e);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    private synchronized ValidationResult getLocal(String key) {
+        Entry entry = this.entries.get(key);
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            this.entries.remove(key);
+            return null;
+        }
+        return entry == null ? null : entry.result;
+    }
+
+    private synchronized void putLocal(String key, ValidationResult result) {
+        this.entries.put(key, new Entry(result, System.currentTimeMillis() + this.freshnessMillis));
+    }
+
+    private ValidationResult getRemote(String key) {
+        try {
+            String json = this.redisTemplate.opsForValue().get(REDIS_PREFIX + key);
+            return json == null ? null : this.objectMapper.readValue(json, ValidationResult.class);
+        } catch (JsonProcessingException | RuntimeException e) {
+            LOGGER.debug("Could not read validation result {} from Redis", key, e);
+            return null;
+        }
+    }
+
+    private String currentSuffix() {
+        return "-" + this.validationService.getTrustStoreVersion() + '-' + this.revocationService.getDataVersion();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final ValidationResult result;
+        private final long expiresAt;
+
+        private Entry(ValidationResult result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.demo.validation;
+/**
+ * This package is reserved for the validation infrastructure shared by the
+ * validation services, such as the caches of expensive verification results.
+ */
@@ -0,0 +1,126 @@
+package com.example.demo.validation.revocation;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CRLException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+import com.example.demo.crypto.CryptoPrimitives;
+
+/**
+ * Compact, immutable view of a CRL: the revoked serial numbers sorted for
+ * binary search and their revocation dates in a parallel array. The parsed CRL
+ * itself is not kept; only the signed bytes needed to check its signature
+ * against the issuer key, which is done once per key.
+ */
+public final class CrlIndex {
+    private final X500Principal issuer;
+
+    private final Date thisUpdate;
+
+    private final Date nextUpdate;
+
+    private final BigInteger[] serialNumbers;
+
+    private final long[] revocationDates;
+
+    private final byte[] tbsCertList;
+
+    private final byte[] signature;
+
+    private final String signatureAlgorithm;
+
+    private volatile PublicKey verifiedKey;
+
+    private CrlIndex(X500Principal issuer, Date thisUpdate, Date nextUpdate, BigInteger[] serialNumbers, long[] revocationDates,
+            byte[] tbsCertList, byte[] signature, String signatureAlgorithm) {
+        this.issuer = issuer;
+        this.thisUpdate = thisUpdate;
+        this.nextUpdate = nextUpdate;
+        this.serialNumbers = serialNumbers;
+        this.revocationDates = revocationDates;
+        this.tbsCertList = tbsCertList;
+        this.signature = signature;
+        this.signatureAlgorithm = signatureAlgorithm;
+    }
+
+    public static CrlIndex of(X509CRL crl) throws CRLException {
+        Set<? extends X509CRLEntry> revoked = crl.getRevokedCertificates();
+        List<X509CRLEntry> entries = revoked == null ? new ArrayList<>() : new ArrayList<>(revoked);
+        entries.sort(Comparator.comparing(X509CRLEntry::getSerialNumber));
+
+        BigInteger[] serialNumbers = new BigInteger[entries.size()];
+        long[] revocationDates = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            serialNumbers[i] = entries.get(i).getSerialNumber();
+            revocationDates[i] = entries.get(i).getRevocationDate().getTime();
+        }
+
+        return new CrlIndex(crl.getIssuerX500Principal(), crl.getThisUpdate(), crl.getNextUpdate(), serialNumbers, revocationDates,
+                crl.getTBSCertList(), crl.getSignature(), crl.getSigAlgName());
+    }
+
+    public X500Principal getIssuer() {
+        return issuer;
+    }
+
+    public Date getThisUpdate() {
+        return thisUpdate;
+    }
+
+    public Date getNextUpdate() {
+        return nextUpdate;
+    }
+
+    public int size() {
+        return serialNumbers.length;
+    }
+
+    /**
+     * @return Whether the CRL may still be used at the given time.
+     */
+    public boolean isCurrent(long now) {
+        return thisUpdate.getTime() <= now && (nextUpdate == null || now < nextUpdate.getTime());
+    }
+
+    /**
+     * @return The revocation date of the serial number, or null if it is not listed.
+     */
+    public Date lookup(BigInteger serialNumber) {
+        int position = Arrays.binarySearch(serialNumbers, serialNumber);
+        return position < 0 ? null : new Date(revocationDates[position]);
+    }
+
+    /**
+     * Checks the CRL signature with the issuer key. The outcome for the last
+     * successfully verified key is remembered.
+     */
+    public boolean isSignedBy(PublicKey issuerKey, CryptoPrimitives cryptoPrimitives) {
+        if (issuerKey.equals(verifiedKey)) {
+            return true;
+        }
+        try {
+            Signature verifier = cryptoPrimitives.signature(signatureAlgorithm);
+            verifier.initVerify(issuerKey);
+            verifier.update(tbsCertList);
+            if (!verifier.verify(signature)) {
+                return false;
+            }
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+        verifiedKey = issuerKey;
+        return true;
+    }
+}
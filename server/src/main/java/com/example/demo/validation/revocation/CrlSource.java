@@ -0,0 +1,13 @@
+package com.example.demo.validation.revocation;
+
+import java.io.IOException;
+import java.security.cert.X509CRL;
+import java.util.List;
+
+/**
+ * Where the revocation engine gets its CRLs from. Called from the background
+ * refresh only, never on the request path.
+ */
+public interface CrlSource {
+    List<X509CRL> load() throws IOException;
+}
@@ -0,0 +1,57 @@
+package com.example.demo.validation.revocation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.cert.CRL;
+import java.security.cert.X509CRL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.helpers.SignTestPortHelper;
+
+/**
+ * Reads the {@code *.crl} files (DER or PEM) of a local directory, typically
+ * kept up to date by a job that mirrors the ICP-Brasil distribution points.
+ * Without a configured directory no CRL is available.
+ */
+@Component
+public class FileSystemCrlSource implements CrlSource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemCrlSource.class);
+
+    private final Path directory;
+
+    public FileSystemCrlSource(@Value("${validation.revocation.crl.directory:}") String directory) {
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+    }
+
+    @Override
+    public List<X509CRL> load() throws IOException {
+        List<X509CRL> crls = new ArrayList<>();
+        if (this.directory == null || !Files.isDirectory(this.directory)) {
+            return crls;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*.crl")) {
+            for (Path file : files) {
+                try (InputStream input = Files.newInputStream(file)) {
+                    CRL crl = SignTestPortHelper.parseCrlFromStream(input);
+                    if (crl instanceof X509CRL) {
+                        crls.add((X509CRL) crl);
+                    }
+                } catch (GeneralSecurityException e) {
+                    LOGGER.warn("Skipping unreadable CRL {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        return crls;
+    }
+}
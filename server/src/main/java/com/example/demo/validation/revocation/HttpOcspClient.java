@@ -0,0 +1,50 @@
+package com.example.demo.validation.revocation;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * OCSP over HTTP POST, sharing one keep-alive client for every responder.
+ */
+@Component
+public class HttpOcspClient implements OcspClient {
+    private static final String OCSP_REQUEST = "application/ocsp-request";
+
+    private final HttpClient httpClient;
+
+    private final Duration timeout;
+
+    public HttpOcspClient(@Value("${validation.revocation.ocsp.timeout:PT5S}") Duration timeout) {
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public byte[] send(String url, byte[] encodedRequest) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(this.timeout)
+                .header("Content-Type", OCSP_REQUEST)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(encodedRequest))
+                .build();
+        try {
+            HttpResponse<byte[]> response = this.httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IOException("OCSP responder " + url + " answered HTTP " + response.statusCode());
+            }
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while contacting OCSP responder " + url, e);
+        }
+    }
+}
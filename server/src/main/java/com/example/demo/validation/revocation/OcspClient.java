@@ -0,0 +1,15 @@
+package com.example.demo.validation.revocation;
+
+import java.io.IOException;
+
+/**
+ * Transport used to reach OCSP responders.
+ */
+public interface OcspClient {
+    /**
+     * @param url Responder URL, taken from the certificate.
+     * @param encodedRequest DER encoded {@code OCSPRequest}.
+     * @return DER encoded {@code OCSPResponse}.
+     */
+    byte[] send(String url, byte[] encodedRequest) throws IOException;
+}
@@ -0,0 +1,481 @@
+package com.example.demo.validation.revocation;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.helpers.SignTestPortHelper;
+import com.itextpdf.signatures.CertificateUtil;
+
+/**
+ * Answers revocation questions from local data so the validation does not
+ * have to disable revocation to stay fast.
+ *
+ * CRLs are loaded from the {@link CrlSource} and indexed per issuer by the
+ * background refresh. OCSP responses are cached until their
+ * {@code nextUpdate} and re-fetched by the same refresh shortly before they
+ * expire. No request is sent on the request path: a certificate that is
+ * neither covered by a current CRL nor by a cached OCSP response is answered
+ * {@code unknown} and queued, and its OCSP response is fetched in the
+ * background every {@code validation.revocation.ocsp.fetch-interval}.
+ */
+@Component
+public class RevocationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RevocationService.class);
+
+    private final CrlSource crlSource;
+
+    private final OcspClient ocspClient;
+
+    private final CryptoPrimitives cryptoPrimitives;
+
+    private final boolean ocspEnabled;
+
+    private final boolean statusRequired;
+
+    private final long freshnessMillis;
+
+    private final long refreshAheadMillis;
+
+    private final int maxOcspEntries;
+
+    private volatile Map<X500Principal, CrlIndex> crlIndexes = Map.of();
+
+    private final Map<String, OcspEntry> ocspResponses;
+
+    private final Map<String, OcspEntry> queuedFetches = new LinkedHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile DataVersion dataVersion;
+
+    public RevocationService(CrlSource crlSource, OcspClient ocspClient, CryptoPrimitives cryptoPrimitives,
+            @Value("${validation.revocation.ocsp.enabled:true}") boolean ocspEnabled,
+            @Value("${validation.revocation.require-status:false}") boolean statusRequired,
+            @Value("${validation.revocation.freshness:1h}") Duration freshness,
+            @Value("${validation.revocation.refresh-ahead:PT30M}") Duration refreshAhead,
+            @Value("${validation.revocation.ocsp.max-entries:10000}") int maxOcspEntries) {
+        this.crlSource = crlSource;
+        this.ocspClient = ocspClient;
+        this.cryptoPrimitives = cryptoPrimitives;
+        this.ocspEnabled = ocspEnabled;
+        this.statusRequired = statusRequired;
+        this.freshnessMillis = freshness.toMillis();
+        this.refreshAheadMillis = refreshAhead.toMillis();
+        this.maxOcspEntries = maxOcspEntries;
+        this.ocspResponses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OcspEntry> eldest) {
+                if (size() <= RevocationService.this.maxOcspEntries) {
+                    return false;
+                }
+                RevocationService.this.version.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return Whether a certificate without a known status must fail the validation.
+     */
+    public boolean isStatusRequired() {
+        return statusRequired;
+    }
+
+    /**
+     * Incremented whenever the revocation data changes, that is when the CRLs
+     * are reloaded or an OCSP fetch changes the status answered for a
+     * certificate, so results derived from it can be invalidated.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Identifies the revocation data itself rather than its local changes: a
+     * digest of the issuer and {@code thisUpdate} of every CRL and of the cached
+     * OCSP statuses. Instances holding the same data get the same value, so it
+     * can key results shared between them. Recomputed when {@link #getVersion()}
+     * changes.
+     */
+    public String getDataVersion() {
+        long current = this.version.get();
+        DataVersion cached = this.dataVersion;
+        if (cached != null && cached.version == current) {
+            return cached.value;
+        }
+
+        List<String> items = new ArrayList<>();
+        for (CrlIndex crl : this.crlIndexes.values()) {
+            items.add("crl:" + crl.getIssuer().getName() + ':' + crl.getThisUpdate().getTime() + ':' + crl.size());
+        }
+        synchronized (this.ocspResponses) {
+            for (Map.Entry<String, OcspEntry> entry : this.ocspResponses.entrySet()) {
+                RevocationStatus status = entry.getValue().status;
+                items.add("ocsp:" + entry.getKey() + ':' + status.getStatus()
+                        + (status.getRevocationDate() != null ? ":" + status.getRevocationDate().getTime() : ""));
+            }
+        }
+        Collections.sort(items);
+
+        MessageDigest digest = sha256();
+        for (String item : items) {
+            digest.update(item.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        String value = HexFormat.of().formatHex(digest.digest(), 0, 8);
+        this.dataVersion = new DataVersion(current, value);
+        return value;
+    }
+
+    public RevocationStatus check(X509Certificate certificate, X509Certificate issuer) {
+        long now = System.currentTimeMillis();
+        BigInteger serialNumber = certificate.getSerialNumber();
+
+        CertificateID certificateId;
+        try {
+            certificateId = SignTestPortHelper.generateCertificateId(issuer, serialNumber, CertificateID.HASH_SHA1);
+        } catch (GeneralSecurityException | OperatorCreationException | OCSPException e) {
+            LOGGER.debug("Cannot compute the OCSP certificate id of {}", serialNumber, e);
+            return RevocationStatus.unknown();
+        }
+        String key = ocspKey(certificateId);
+
+        OcspEntry cached = this.getOcspEntry(key);
+        if (cached != null && cached.isCurrent(now)) {
+            cached.lastUsed = now;
+            return cached.status;
+        }
+
+        CrlIndex crl = this.crlIndexes.get(issuer.getSubjectX500Principal());
+        if (crl != null && crl.isCurrent(now) && crl.isSignedBy(issuer.getPublicKey(), this.cryptoPrimitives)) {
+            Date revocationDate = crl.lookup(serialNumber);
+            return revocationDate == null
+                    ? new RevocationStatus(RevocationStatus.Status.GOOD, RevocationStatus.Source.CRL, null)
+                    : new RevocationStatus(RevocationStatus.Status.REVOKED, RevocationStatus.Source.CRL, revocationDate);
+        }
+
+        if (!this.ocspEnabled) {
+            return RevocationStatus.unknown();
+        }
+        String url = CertificateUtil.getOCSPURL(certificate);
+        if (url != null) {
+            synchronized (this.queuedFetches) {
+                if (this.queuedFetches.size() < this.maxOcspEntries) {
+                    this.queuedFetches.putIfAbsent(key, new OcspEntry(certificate, issuer, url, RevocationStatus.unknown(), 0L));
+                }
+            }
+        }
+        return RevocationStatus.unknown();
+    }
+
+    /**
+     * Reloads the CRLs and renews the OCSP responses close to expiry. Runs off
+     * the request path, right after startup and then periodically.
+     */
+    @Scheduled(fixedDelayString = "${validation.revocation.refresh-interval:PT15M}")
+    public void refresh() {
+        this.reloadCrls();
+        this.refreshOcspResponses();
+    }
+
+    /**
+     * Fetches the OCSP responses of the certificates found without a status
+     * since the last run.
+     */
+    @Scheduled(fixedDelayString = "${validation.revocation.ocsp.fetch-interval:PT5S}")
+    public void fetchQueued() {
+        List<Map.Entry<String, OcspEntry>> queued;
+        synchronized (this.queuedFetches) {
+            queued = new ArrayList<>(this.queuedFetches.entrySet());
+            this.queuedFetches.clear();
+        }
+
+        for (Map.Entry<String, OcspEntry> entry : queued) {
+            OcspEntry pending = entry.getValue();
+            if (this.getOcspEntry(entry.getKey()) != null) {
+                continue;
+            }
+            try {
+                CertificateID certificateId = SignTestPortHelper.generateCertificateId(pending.issuer,
+                        pending.certificate.getSerialNumber(), CertificateID.HASH_SHA1);
+                this.fetchOcsp(pending.certificate, pending.issuer, pending.url, certificateId, entry.getKey());
+            } catch (GeneralSecurityException | OperatorCreationException | OCSPException e) {
+                LOGGER.debug("Cannot fetch the OCSP response of {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    void reloadCrls() {
+        List<X509CRL> crls;
+        try {
+            crls = this.crlSource.load();
+        } catch (IOException e) {
+            LOGGER.warn("Could not reload CRLs, keeping the current ones: {}", e.getMessage());
+            return;
+        }
+
+        Map<X500Principal, CrlIndex> indexes = new HashMap<>();
+        for (X509CRL crl : crls) {
+            CrlIndex current = indexes.get(crl.getIssuerX500Principal());
+            if (current != null && !crl.getThisUpdate().after(current.getThisUpdate())) {
+                continue;
+            }
+            try {
+                indexes.put(crl.getIssuerX500Principal(), CrlIndex.of(crl));
+            } catch (GeneralSecurityException e) {
+                LOGGER.warn("Skipping CRL of {}: {}", crl.getIssuerX500Principal(), e.getMessage());
+            }
+        }
+
+        if (!sameCrls(this.crlIndexes, indexes)) {
+            this.crlIndexes = Map.copyOf(indexes);
+            this.version.incrementAndGet();
+        }
+    }
+
+    void refreshOcspResponses() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, OcspEntry>> due = new ArrayList<>();
+        synchronized (this.ocspResponses) {
+            if (this.ocspResponses.entrySet().removeIf(entry -> now - entry.getValue().lastUsed > this.freshnessMillis)) {
+                this.version.incrementAndGet();
+            }
+            for (Map.Entry<String, OcspEntry> entry : this.ocspResponses.entrySet()) {
+                if (entry.getValue().expiresAt - now <= this.refreshAheadMillis) {
+                    due.add(Map.entry(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+
+        for (Map.Entry<String, OcspEntry> entry : due) {
+            OcspEntry previous = entry.getValue();
+            try {
+                CertificateID certificateId = SignTestPortHelper.generateCertificateId(previous.issuer,
+                        previous.certificate.getSerialNumber(), CertificateID.HASH_SHA1);
+                OcspEntry renewed = this.fetchOcsp(previous.certificate, previous.issuer, previous.url, certificateId, entry.getKey());
+                if (renewed != null) {
+                    renewed.lastUsed = previous.lastUsed;
+                }
+            } catch (GeneralSecurityException | OperatorCreationException | OCSPException e) {
+                LOGGER.debug("Cannot refresh the OCSP response of {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    int ocspCacheSize() {
+        synchronized (this.ocspResponses) {
+            return this.ocspResponses.size();
+        }
+    }
+
+    private OcspEntry getOcspEntry(String key) {
+        synchronized (this.ocspResponses) {
+            return this.ocspResponses.get(key);
+        }
+    }
+
+    private OcspEntry fetchOcsp(X509Certificate certificate, X509Certificate issuer, String url, CertificateID certificateId, String key) {
+        try {
+            OCSPReq request = SignTestPortHelper.generateOcspRequestWithNonce(certificateId);
+            OCSPResp response = new OCSPResp(this.ocspClient.send(url, request.getEncoded()));
+            if (response.getStatus() != OCSPResp.SUCCESSFUL) {
+                LOGGER.debug("OCSP responder {} answered status {}", url, response.getStatus());
+                return null;
+            }
+
+            BasicOCSPResp basicResponse = (BasicOCSPResp) response.getResponseObject();
+            if (!this.isSignedByAuthorizedResponder(basicResponse, issuer)) {
+                LOGGER.warn("Ignoring OCSP response from {}: not signed by an authorized responder", url);
+                return null;
+            }
+            Extension requestNonce = request.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce);
+            Extension responseNonce = basicResponse.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce);
+            if (responseNonce != null && !responseNonce.equals(requestNonce)) {
+                LOGGER.warn("Ignoring OCSP response from {}: nonce mismatch", url);
+                return null;
+            }
+
+            for (SingleResp single : basicResponse.getResponses()) {
+                if (!single.getCertID().equals(certificateId)) {
+                    continue;
+                }
+                OcspEntry entry = new OcspEntry(certificate, issuer, url, toStatus(single.getCertStatus()),
+                        this.expiryOf(single));
+                OcspEntry previous;
+                synchronized (this.ocspResponses) {
+                    previous = this.ocspResponses.put(key, entry);
+                }
+                if (!sameStatus(previous != null ? previous.status : RevocationStatus.unknown(), entry.status)) {
+                    this.version.incrementAndGet();
+                }
+                return entry;
+            }
+            return null;
+        } catch (IOException | OCSPException | RuntimeException e) {
+            LOGGER.debug("OCSP request to {} failed", url, e);
+            return null;
+        }
+    }
+
+    private boolean isSignedByAuthorizedResponder(BasicOCSPResp response, X509Certificate issuer) {
+        if (this.isSignedBy(response, issuer.getPublicKey())) {
+            return true;
+        }
+        // Delegated responder: issued by the CA for OCSP signing
+        for (X509CertificateHolder holder : response.getCerts()) {
+            try {
+                X509Certificate responder = this.cryptoPrimitives.toX509Certificate(holder);
+                if (!responder.getIssuerX500Principal().equals(issuer.getSubjectX500Principal())) {
+                    continue;
+                }
+                List<String> extendedKeyUsage = responder.getExtendedKeyUsage();
+                if (extendedKeyUsage == null || !extendedKeyUsage.contains(KeyPurposeId.id_kp_OCSPSigning.getId())) {
+                    continue;
+                }
+                responder.verify(issuer.getPublicKey(), CryptoPrimitives.provider());
+                responder.checkValidity();
+                if (this.isSignedBy(response, responder.getPublicKey())) {
+                    return true;
+                }
+            } catch (GeneralSecurityException | IOException e) {
+                // not an acceptable responder certificate
+            }
+        }
+        return false;
+    }
+
+    private boolean isSignedBy(BasicOCSPResp response, PublicKey key) {
+        try {
+            return response.isSignatureValid(new JcaContentVerifierProviderBuilder()
+                    .setProvider(CryptoPrimitives.provider())
+                    .build(key));
+        } catch (OCSPException | OperatorCreationException e) {
+            return false;
+        }
+    }
+
+    private long expiryOf(SingleResp single) {
+        if (single.getNextUpdate() != null) {
+            return single.getNextUpdate().getTime();
+        }
+        // No nextUpdate means newer information is always available: keep it for the freshness window only
+        return single.getThisUpdate().getTime() + this.freshnessMillis;
+    }
+
+    private static RevocationStatus toStatus(CertificateStatus certificateStatus) {
+        if (certificateStatus == CertificateStatus.GOOD) {
+            return new RevocationStatus(RevocationStatus.Status.GOOD, RevocationStatus.Source.OCSP, null);
+        }
+        if (certificateStatus instanceof RevokedStatus) {
+            return new RevocationStatus(RevocationStatus.Status.REVOKED, RevocationStatus.Source.OCSP,
+                    ((RevokedStatus) certificateStatus).getRevocationTime());
+        }
+        return new RevocationStatus(RevocationStatus.Status.UNKNOWN, RevocationStatus.Source.OCSP, null);
+    }
+
+    private static String ocspKey(CertificateID certificateId) {
+        HexFormat hex = HexFormat.of();
+        return hex.formatHex(certificateId.getIssuerNameHash()) + ':' + hex.formatHex(certificateId.getIssuerKeyHash())
+                + ':' + certificateId.getSerialNumber().toString(16);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean sameStatus(RevocationStatus previous, RevocationStatus current) {
+        return previous.getStatus() == current.getStatus()
+                && Objects.equals(previous.getRevocationDate(), current.getRevocationDate());
+    }
+
+    private static boolean sameCrls(Map<X500Principal, CrlIndex> current, Map<X500Principal, CrlIndex> loaded) {
+        if (current.size() != loaded.size()) {
+            return false;
+        }
+        for (Map.Entry<X500Principal, CrlIndex> entry : loaded.entrySet()) {
+            CrlIndex other = current.get(entry.getKey());
+            if (other == null || !other.getThisUpdate().equals(entry.getValue().getThisUpdate())
+                    || other.size() != entry.getValue().size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class DataVersion {
+        private final long version;
+        private final String value;
+
+        private DataVersion(long version, String value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    private static final class OcspEntry {
+        private final X509Certificate certificate;
+        private final X509Certificate issuer;
+        private final String url;
+        private final RevocationStatus status;
+        private final long expiresAt;
+        private volatile long lastUsed;
+
+        private OcspEntry(X509Certificate certificate, X509Certificate issuer, String url, RevocationStatus status, long expiresAt) {
+            this.certificate = certificate;
+            this.issuer = issuer;
+            this.url = url;
+            this.status = status;
+            this.expiresAt = expiresAt;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        private boolean isCurrent(long now) {
+            return now < expiresAt;
+        }
+    }
+}
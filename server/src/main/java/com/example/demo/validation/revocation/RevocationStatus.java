@@ -0,0 +1,41 @@
+package com.example.demo.validation.revocation;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Revocation status of a single certificate, as answered by a CRL or an OCSP
+ * response.
+ */
+@Getter
+@AllArgsConstructor
+public class RevocationStatus {
+    public enum Status {
+        GOOD,
+        REVOKED,
+        UNKNOWN
+    }
+
+    public enum Source {
+        CRL,
+        OCSP,
+        NONE
+    }
+
+    private static final RevocationStatus UNKNOWN = new RevocationStatus(Status.UNKNOWN, Source.NONE, null);
+
+    private final Status status;
+
+    private final Source source;
+
+    /**
+     * Revocation date, only set when the certificate is revoked.
+     */
+    private final Date revocationDate;
+
+    public static RevocationStatus unknown() {
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.demo.validation.revocation;
+/**
+ * This package is reserved for the revocation checking used by the
+ * validation, backed by locally indexed CRLs and cached OCSP responses.
+ */
@@ -0,0 +1,121 @@
+package com.example.demo.controllers;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.example.demo.dto.response.ValidationResult;
+import com.example.demo.observability.SigningObservations;
+import com.example.demo.services.ValidationService;
+import com.example.demo.validation.ValidationResultCache;
+import com.example.demo.validation.revocation.RevocationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+class ValidationControllerTest {
+    private static final MockMultipartFile FIRST = file("%PDF-1.7 first");
+
+    private static final MockMultipartFile SECOND = file("%PDF-1.7 second");
+
+    private ValidationService validationService;
+
+    private ValidationResultCache cache;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void createController() {
+        this.validationService = mock(ValidationService.class);
+        RevocationService revocationService = mock(RevocationService.class);
+        when(this.validationService.getTrustStoreVersion()).thenReturn("trust1");
+        when(revocationService.getDataVersion()).thenReturn("crl1");
+        when(this.validationService.validateSignature(any())).thenAnswer(invocation -> new ValidationResult());
+        @SuppressWarnings("unchecked")
+        ObjectProvider<StringRedisTemplate> redis = mock(ObjectProvider.class);
+        this.cache = new ValidationResultCache(this.validationService, revocationService, new ObjectMapper(), redis,
+                new SimpleMeterRegistry(), Duration.ofHours(1), 100, false);
+
+        ValidationController controller = new ValidationController();
+        ReflectionTestUtils.setField(controller, "validationService", this.validationService);
+        ReflectionTestUtils.setField(controller, "validationResultCache", this.cache);
+        ReflectionTestUtils.setField(controller, "observations",
+                new SigningObservations(ObservationRegistry.create(), new SimpleMeterRegistry()));
+        this.mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void answersNotModifiedForTheTagOfTheUploadedFile() throws Exception {
+        String etag = etagOf(FIRST);
+
+        this.mockMvc.perform(multipart("/validation/validate").file(FIRST).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        // Without the file, any current tag is enough
+        this.mockMvc.perform(multipart("/validation/validate").header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+                .andExpect(status().isNotModified());
+        verify(this.validationService, times(1)).validateSignature(any());
+    }
+
+    @Test
+    void validatesAnotherFileSentWithAnOldTag() throws Exception {
+        String etag = etagOf(FIRST);
+
+        this.mockMvc.perform(multipart("/validation/validate").file(SECOND).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, '"' + this.cache.keyOf(SECOND.getBytes()) + '"'));
+        verify(this.validationService, times(2)).validateSignature(any());
+    }
+
+    @Test
+    void requiresTheFileWithoutACurrentTag() throws Exception {
+        this.mockMvc.perform(multipart("/validation/validate").header(HttpHeaders.IF_NONE_MATCH, "\"unknown\""))
+                .andExpect(status().isBadRequest());
+        this.mockMvc.perform(multipart("/validation/validate"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void doesNotCacheResultsCutShortByAnException() throws Exception {
+        when(this.validationService.validateSignature(any())).thenAnswer(invocation -> {
+            ValidationResult result = new ValidationResult();
+            result.addFailure("Error validating signature value: timeout");
+            return result;
+        });
+        String etag = etagOf(FIRST);
+
+        this.mockMvc.perform(multipart("/validation/validate").file(FIRST).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(multipart("/validation/validate").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isBadRequest());
+        verify(this.validationService, times(2)).validateSignature(any());
+    }
+
+    private String etagOf(MockMultipartFile file) throws Exception {
+        return this.mockMvc.perform(multipart("/validation/validate").file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private static MockMultipartFile file(String content) {
+        return new MockMultipartFile("file", "document.pdf", "application/pdf", content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.factory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.signature.SignatureConstraints;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfString;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.annot.PdfWidgetAnnotation;
+
+class SignaturePlacementIndexTest {
+    private static final float WIDTH = 200;
+
+    private static final float HEIGHT = 100;
+
+    @Test
+    void fillsTheGridAroundExistingWidgets() {
+        PdfDocument document = document(new Rectangle(0, 0, WIDTH, HEIGHT), new Rectangle(250, 50, 100, 100));
+        SignaturePlacementIndex index = SignaturePlacementIndex.of(document);
+
+        // Two columns on A4: the first widget takes cell 0, the second straddles cells 1 and 3
+        assertRect(new Rectangle(0, 100, WIDTH, HEIGHT), index.reserve(1, WIDTH, HEIGHT));
+        assertRect(new Rectangle(0, 200, WIDTH, HEIGHT), index.reserve(1, WIDTH, HEIGHT));
+        assertRect(new Rectangle(200, 200, WIDTH, HEIGHT), index.reserve(1, WIDTH, HEIGHT));
+    }
+
+    @Test
+    void keepsARequestedBoxOnlyWhenItIsFree() {
+        // A widget partly off the page is still an obstacle
+        PdfDocument document = document(new Rectangle(100, 100, 50, 50), new Rectangle(-50, 500, 100, 40));
+        SignaturePlacementIndex index = SignaturePlacementIndex.of(document);
+
+        Rectangle free = new Rectangle(300, 300, WIDTH, HEIGHT);
+        assertSame(free, index.reserve(1, free));
+        assertRect(new Rectangle(0, 0, WIDTH, HEIGHT), index.reserve(1, new Rectangle(120, 120, WIDTH, HEIGHT)));
+        assertRect(new Rectangle(200, 0, WIDTH, HEIGHT), index.reserve(1, new Rectangle(0, 480, WIDTH, HEIGHT)));
+        // Overlaps the requested box reserved first, which sticks out of the grid
+        assertRect(new Rectangle(200, 100, WIDTH, HEIGHT), index.reserve(1, new Rectangle(350, 350, WIDTH, HEIGHT)));
+    }
+
+    @Test
+    void neverOverlapsWhileTheGridHasRoom() {
+        Random random = new Random(3);
+        PageSize page = PageSize.A4;
+        Rectangle[] widgets = new Rectangle[8];
+        for (int i = 0; i < widgets.length; i++) {
+            widgets[i] = new Rectangle(random.nextFloat() * page.getWidth(), random.nextFloat() * page.getHeight(),
+                    20 + random.nextFloat() * 150, 20 + random.nextFloat() * 80);
+        }
+        SignaturePlacementIndex index = SignaturePlacementIndex.of(document(widgets));
+        List<Rectangle> placed = new ArrayList<>(List.of(widgets));
+
+        // Fewer boxes than the grid has cells left
+        for (int i = 0; i < 6; i++) {
+            Rectangle requested = new Rectangle(random.nextFloat() * 400, random.nextFloat() * 700, WIDTH, HEIGHT);
+            Rectangle reserved = index.reserve(1, requested);
+            for (Rectangle other : placed) {
+                assertFalse(intersects(reserved, other), "box " + i + " overlaps " + other);
+            }
+            placed.add(reserved);
+        }
+    }
+
+    @Test
+    void numbersNewFieldsAfterTheExistingSignatures() {
+        PdfDocument document = document();
+        PdfDictionary acroForm = new PdfDictionary();
+        PdfArray fields = new PdfArray();
+        fields.add(field(SignatureConstraints.FIELD_NAME + "0"));
+        fields.add(field(SignatureConstraints.FIELD_NAME + "2"));
+        fields.add(field("other"));
+        acroForm.put(PdfName.Fields, fields);
+        document.getCatalog().put(PdfName.AcroForm, acroForm);
+        SignaturePlacementIndex index = SignaturePlacementIndex.of(document);
+
+        // Two signature fields, the name they suggest is already taken
+        assertEquals(SignatureConstraints.FIELD_NAME + "3", index.nextFieldName());
+        assertEquals(SignatureConstraints.FIELD_NAME + "4", index.nextFieldName());
+    }
+
+    private static PdfDocument document(Rectangle... widgets) {
+        PdfDocument document = new PdfDocument(new PdfWriter(new ByteArrayOutputStream()));
+        PdfPage page = document.addNewPage(PageSize.A4);
+        for (Rectangle widget : widgets) {
+            page.addAnnotation(new PdfWidgetAnnotation(widget));
+        }
+        return document;
+    }
+
+    private static PdfDictionary field(String name) {
+        PdfDictionary field = new PdfDictionary();
+        field.put(PdfName.T, new PdfString(name));
+        return field;
+    }
+
+    private static boolean intersects(Rectangle a, Rectangle b) {
+        return a.getLeft() < b.getRight() && b.getLeft() < a.getRight()
+                && a.getBottom() < b.getTop() && b.getBottom() < a.getTop();
+    }
+
+    private static void assertRect(Rectangle expected, Rectangle actual) {
+        assertEquals(expected.getX(), actual.getX(), 0.01f);
+        assertEquals(expected.getY(), actual.getY(), 0.01f);
+        assertEquals(expected.getWidth(), actual.getWidth(), 0.01f);
+        assertEquals(expected.getHeight(), actual.getHeight(), 0.01f);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.admission.MemoryBudget;
+import com.example.demo.services.SignatureService;
+import com.example.demo.services.ValidationServicee;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JobServiceTest {
+    private static final int MAX_ATTEMPTS = 2;
+
+    @TempDir
+    Path directory;
+
+    private JobStore store;
+
+    private AsyncTaskExecutor workers;
+
+    private JobService service;
+
+    @BeforeEach
+    void createService() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.store = new JobStore(objectMapper, this.directory.toString());
+        // Records the dispatched jobs without running them
+        this.workers = mock(AsyncTaskExecutor.class);
+        this.service = new JobService(this.store, mock(SignatureService.class), mock(ValidationServicee.class),
+                new JobCallbackNotifier(Duration.ofSeconds(1), List.of()), objectMapper, this.workers,
+                mock(AsyncTaskExecutor.class), meterRegistry, new MemoryBudget(meterRegistry, DataSize.ofMegabytes(64), 10),
+                "123456", Duration.ofHours(1), MAX_ATTEMPTS, Duration.ofSeconds(1), DataSize.ofMegabytes(1), 3, 2);
+    }
+
+    @Test
+    void queuesAgainTheJobsInterruptedByARestart() throws Exception {
+        Job running = running(1);
+        Job queued = JobStoreTest.create(this.store, JobStatus.QUEUED);
+        Job succeeded = JobStoreTest.create(this.store, JobStatus.SUCCEEDED);
+        Path partialResult = Files.createFile(this.directory.resolve(running.getId()).resolve("result-1.tmp"));
+
+        this.service.recover();
+
+        Job restarted = this.store.find(running.getId());
+        assertEquals(JobStatus.QUEUED, restarted.getStatus());
+        assertEquals(1, restarted.getAttempts());
+        assertNull(restarted.getStartedAt());
+        assertEquals(JobStatus.QUEUED, this.store.find(queued.getId()).getStatus());
+        assertEquals(JobStatus.SUCCEEDED, this.store.find(succeeded.getId()).getStatus());
+        assertFalse(Files.exists(partialResult));
+        // The restarted and the queued job
+        verify(this.workers, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void failsAJobInterruptedTooManyTimes() throws Exception {
+        Job running = running(MAX_ATTEMPTS);
+
+        this.service.recover();
+
+        Job failed = this.store.find(running.getId());
+        assertEquals(JobStatus.FAILED, failed.getStatus());
+        assertNotNull(failed.getFinishedAt());
+        verify(this.workers, times(0)).execute(any(Runnable.class));
+    }
+
+    private Job running(int attempts) throws Exception {
+        Job job = JobStoreTest.create(this.store, JobStatus.RUNNING);
+        job.setAttempts(attempts);
+        job.setStartedAt(Instant.now());
+        this.store.save(job);
+        return job;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.example.demo.storage.DocumentSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class JobStoreTest {
+    private static final byte[] DOCUMENT = "%PDF-1.7 document".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path directory;
+
+    private JobStore store;
+
+    @BeforeEach
+    void createStore() throws Exception {
+        this.store = new JobStore(new ObjectMapper().findAndRegisterModules(), this.directory.toString());
+    }
+
+    @Test
+    void keepsTheStateAndDocumentOfAJob() throws Exception {
+        Job job = create(this.store, JobStatus.QUEUED);
+
+        Job found = this.store.find(job.getId());
+        assertEquals(JobStatus.QUEUED, found.getStatus());
+        assertEquals(job.getCreatedAt(), found.getCreatedAt());
+        try (DocumentSource input = this.store.openInput(found)) {
+            assertArrayEquals(DOCUMENT, input.toByteArray());
+        }
+        assertNull(this.store.find("../" + job.getId()));
+        assertNull(this.store.find("00000000-0000-0000-0000-000000000000"));
+    }
+
+    @Test
+    void purgesWhatACrashLeftHalfWritten() throws Exception {
+        Job job = create(this.store, JobStatus.RUNNING);
+        // A job whose creation was interrupted and a result being written
+        Path unpublished = Files.createDirectory(this.directory.resolve("6f1c1f0e-2f44-4c4e-9a4f-000000000001.tmp"));
+        Files.write(unpublished.resolve("input.pdf"), DOCUMENT);
+        Path partialResult = Files.write(this.directory.resolve(job.getId()).resolve("result-1.tmp"), DOCUMENT);
+
+        this.store.purgeIncomplete();
+
+        assertFalse(Files.exists(unpublished));
+        assertFalse(Files.exists(partialResult));
+        assertEquals(1, this.store.findAll().size());
+        assertEquals(JobStatus.RUNNING, this.store.find(job.getId()).getStatus());
+        assertTrue(Files.exists(this.directory.resolve(job.getId()).resolve("input.pdf")));
+    }
+
+    static Job create(JobStore store, JobStatus status) throws Exception {
+        Job job = new Job();
+        job.setType(JobType.VALIDATION);
+        job.setStatus(status);
+        job.setDocumentName("document.pdf");
+        job.setCreatedAt(Instant.now());
+        return store.create(job, new MockMultipartFile("file", "document.pdf", "application/pdf", DOCUMENT));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.signature.batch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MerkleTreeTest {
+    @Test
+    void everyLeafLeadsToTheRoot() throws Exception {
+        for (int size = 1; size <= 9; size++) {
+            List<byte[]> leaves = leaves(size);
+            MerkleTree tree = new MerkleTree(leaves, sha256());
+            for (int i = 0; i < size; i++) {
+                assertArrayEquals(tree.root(), MerkleTree.rootOf(leaves.get(i), i, size, tree.path(i), sha256()));
+            }
+        }
+    }
+
+    @Test
+    void rejectsAProofUsedForAnotherLeaf() throws Exception {
+        List<byte[]> leaves = leaves(5);
+        MerkleTree tree = new MerkleTree(leaves, sha256());
+
+        assertFalse(Arrays.equals(tree.root(), MerkleTree.rootOf(leaves.get(1), 2, 5, tree.path(1), sha256())));
+        assertFalse(Arrays.equals(tree.root(), MerkleTree.rootOf(leaves.get(0), 1, 5, tree.path(1), sha256())));
+        // The path length has to match the position in a tree of that size
+        assertNull(MerkleTree.rootOf(leaves.get(4), 4, 5, tree.path(0), sha256()));
+        assertNull(MerkleTree.rootOf(leaves.get(0), 5, 5, tree.path(0), sha256()));
+    }
+
+    private static List<byte[]> leaves(int size) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            leaves.add(new byte[] { (byte) i, (byte) (i * 7) });
+        }
+        return leaves;
+    }
+
+    private static MessageDigest sha256() throws Exception {
+        return MessageDigest.getInstance("SHA-256");
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.demo.signature.timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoGeneratorBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.tsp.TSPAlgorithms;
+import org.bouncycastle.tsp.TimeStampRequest;
+import org.bouncycastle.tsp.TimeStampResponseGenerator;
+import org.bouncycastle.tsp.TimeStampToken;
+import org.bouncycastle.tsp.TimeStampTokenGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.helpers.SignTestPortHelper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TsaClientTest {
+    private static final String TSA_URL = "http://tsa.test/";
+
+    private static final String POLICY = "1.2.3.4.1";
+
+    private static TimeStampResponseGenerator stubTsa;
+
+    @BeforeAll
+    static void createStubTsa() throws Exception {
+        CryptoPrimitives.provider();
+        KeyPair keys = SignTestPortHelper.buildRSA2048KeyPairGenerator().generateKeyPair();
+        Date now = new Date();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name("CN=Test TSA"), BigInteger.ONE,
+                new Date(now.getTime() - 3600_000L), new Date(now.getTime() + 3600_000L), new X500Name("CN=Test TSA"), keys.getPublic());
+        builder.addExtension(Extension.extendedKeyUsage, true, new ExtendedKeyUsage(KeyPurposeId.id_kp_timeStamping));
+        X509Certificate certificate = new JcaX509CertificateConverter().setProvider(CryptoPrimitives.provider())
+                .getCertificate(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keys.getPrivate())));
+
+        TimeStampTokenGenerator tokens = new TimeStampTokenGenerator(
+                new JcaSimpleSignerInfoGeneratorBuilder().setProvider(CryptoPrimitives.provider())
+                        .build("SHA256withRSA", keys.getPrivate(), certificate),
+                new JcaDigestCalculatorProviderBuilder().build().get(new AlgorithmIdentifier(NISTObjectIdentifiers.id_sha256)),
+                new ASN1ObjectIdentifier(POLICY));
+        tokens.addCertificates(new JcaCertStore(List.of(certificate)));
+        stubTsa = new TimeStampResponseGenerator(tokens, TSPAlgorithms.ALLOWED);
+    }
+
+    @Test
+    void returnsAVerifiedTokenForTheImprint() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        TsaClient client = client((url, request) -> {
+            calls.incrementAndGet();
+            assertEquals(TSA_URL, url);
+            return respond(request);
+        }, 4);
+        byte[] imprint = client.getMessageDigest().digest("signature value".getBytes());
+
+        TimeStampToken token = new TimeStampToken(new CMSSignedData(client.getTimeStampToken(imprint)));
+        assertArrayEquals(imprint, token.getTimeStampInfo().getMessageImprintDigest());
+        assertEquals(POLICY, token.getTimeStampInfo().getPolicy().getId());
+
+        client.getTimeStampToken(client.getMessageDigest().digest("another signature".getBytes()));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void coalescesConcurrentRequestsForTheSameImprint() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        TsaClient client = client((url, request) -> {
+            calls.incrementAndGet();
+            await(release);
+            return respond(request);
+        }, 4, registry);
+        byte[] imprint = client.getMessageDigest().digest("signature value".getBytes());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> tokens = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                tokens.add(executor.submit(() -> client.getTimeStampToken(imprint)));
+            }
+            // Every caller but the one talking to the TSA joins the pending request
+            while (registry.get("signing.tsa.requests").tag("result", "coalesced").counter().count() < 3) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            byte[] first = tokens.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<byte[]> token : tokens) {
+                assertArrayEquals(first, token.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failsWhenTooManyRequestsAreInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch sent = new CountDownLatch(1);
+        TsaClient client = client((url, request) -> {
+            sent.countDown();
+            await(release);
+            return respond(request);
+        }, 1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> blocked = executor.submit(() -> client.getTimeStampToken(client.getMessageDigest().digest("first".getBytes())));
+            await(sent);
+
+            byte[] other = client.getMessageDigest().digest("second".getBytes());
+            assertThrows(IOException.class, () -> client.getTimeStampToken(other));
+
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static TsaClient client(TimestampTransport transport, int maxInFlight) {
+        return client(transport, maxInFlight, new SimpleMeterRegistry());
+    }
+
+    private static TsaClient client(TimestampTransport transport, int maxInFlight, SimpleMeterRegistry registry) {
+        return new TsaClient(transport, new CryptoPrimitives(), registry, TSA_URL, "SHA-256", POLICY, maxInFlight,
+                Duration.ofMillis(100), 4096);
+    }
+
+    private static byte[] respond(byte[] encodedRequest) throws IOException {
+        try {
+            return stubTsa.generate(new TimeStampRequest(encodedRequest), BigInteger.valueOf(System.nanoTime()), new Date()).getEncoded();
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.validation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.storage.ByteArrayDocument;
+
+class RevisionDigesterTest {
+    private final RevisionDigester digester = new RevisionDigester(new CryptoPrimitives());
+
+    @Test
+    void matchesAPerRevisionDigest() throws Exception {
+        // Larger than the read buffer, so ranges span several reads
+        byte[] file = new byte[200_000];
+        new Random(42).nextBytes(file);
+        List<long[]> byteRanges = List.of(
+                new long[] { 0, 1_000, 3_000, 17_000 },
+                new long[] { 0, 90_000, 98_000, 2_000 },
+                new long[] { 0, 150_000, 160_000, 40_000 },
+                // Not starting at 0, hashed on its own
+                new long[] { 500, 10_000, 80_000, 5_000 });
+        List<String> algorithms = List.of("SHA-256", "SHA-512", "SHA-256", "SHA-256");
+
+        List<byte[]> digests = this.digester.digest(new ByteArrayDocument(file), byteRanges, algorithms);
+
+        assertEquals(byteRanges.size(), digests.size());
+        for (int i = 0; i < byteRanges.size(); i++) {
+            assertArrayEquals(expected(file, byteRanges.get(i), algorithms.get(i)), digests.get(i), "signature " + i);
+        }
+    }
+
+    @Test
+    void skipsInvalidRangesAndMissingAlgorithms() throws Exception {
+        byte[] file = new byte[1_000];
+        new Random(7).nextBytes(file);
+        List<long[]> byteRanges = Arrays.asList(
+                new long[] { 0, 100, 200, 900 },
+                new long[] { 0, 100, 50, 10 },
+                new long[] { 0, 100, 200, 800 },
+                null);
+        List<String> algorithms = Arrays.asList("SHA-256", "SHA-256", null, "SHA-256");
+
+        List<byte[]> digests = this.digester.digest(new ByteArrayDocument(file), byteRanges, algorithms);
+
+        // Past the end of the file, overlapping, no algorithm, no range
+        assertNull(digests.get(0));
+        assertNull(digests.get(1));
+        assertNull(digests.get(2));
+        assertNull(digests.get(3));
+    }
+
+    private static byte[] expected(byte[] file, long[] byteRange, String algorithm) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance(algorithm);
+        for (int i = 0; i < byteRange.length; i += 2) {
+            digest.update(file, (int) byteRange[i], (int) byteRange[i + 1]);
+        }
+        return digest.digest();
+    }
+}
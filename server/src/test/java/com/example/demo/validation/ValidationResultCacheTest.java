@@ -0,0 +1,101 @@
+package com.example.demo.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import com.example.demo.dto.response.ValidationResult;
+import com.example.demo.services.ValidationService;
+import com.example.demo.validation.revocation.RevocationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ValidationResultCacheTest {
+    private static final byte[] DOCUMENT = "%PDF-1.7 first".getBytes(StandardCharsets.US_ASCII);
+
+    private ValidationService validationService;
+
+    private RevocationService revocationService;
+
+    private ValidationResultCache cache;
+
+    @BeforeEach
+    void createCache() {
+        this.validationService = mock(ValidationService.class);
+        this.revocationService = mock(RevocationService.class);
+        when(this.validationService.getTrustStoreVersion()).thenReturn("trust1");
+        when(this.revocationService.getDataVersion()).thenReturn("crl1");
+        this.cache = cache(this.validationService, this.revocationService);
+    }
+
+    @Test
+    void keysTheContentUnderTheCurrentVersions() {
+        String key = this.cache.keyOf(DOCUMENT);
+
+        assertEquals(64 + "-trust1-crl1".length(), key.length());
+        assertTrue(key.endsWith("-trust1-crl1"));
+        assertEquals(key, this.cache.keyOf(DOCUMENT.clone()));
+        assertNotEquals(key, this.cache.keyOf("%PDF-1.7 second".getBytes(StandardCharsets.US_ASCII)));
+
+        when(this.revocationService.getDataVersion()).thenReturn("crl2");
+        assertNotEquals(key, this.cache.keyOf(DOCUMENT));
+        when(this.revocationService.getDataVersion()).thenReturn("crl1");
+        when(this.validationService.getTrustStoreVersion()).thenReturn("trust2");
+        assertNotEquals(key, this.cache.keyOf(DOCUMENT));
+    }
+
+    @Test
+    void onlyContainsKeysOfTheCurrentData() {
+        String key = this.cache.keyOf(DOCUMENT);
+        ValidationResult result = new ValidationResult();
+        this.cache.put(key, result);
+
+        assertTrue(this.cache.contains(key));
+        assertSame(result, this.cache.get(key));
+        // Other lengths and suffixes never match, whatever the cache holds
+        assertFalse(this.cache.contains("-trust1-crl1"));
+        assertFalse(this.cache.contains(key.substring(1)));
+        assertFalse(this.cache.contains(this.cache.keyOf(new byte[] { 1 })));
+
+        // The entry is still there but was computed under older revocation data
+        when(this.revocationService.getDataVersion()).thenReturn("crl2");
+        assertFalse(this.cache.contains(key));
+        assertNull(this.cache.get(this.cache.keyOf(DOCUMENT)));
+    }
+
+    @Test
+    void boundsTheEntries() {
+        ValidationResultCache small = new ValidationResultCache(this.validationService, this.revocationService, new ObjectMapper(),
+                redisProvider(), new SimpleMeterRegistry(), Duration.ofHours(1), 2, false);
+        String first = small.keyOf(new byte[] { 1 });
+        small.put(first, new ValidationResult());
+        small.put(small.keyOf(new byte[] { 2 }), new ValidationResult());
+        small.put(small.keyOf(new byte[] { 3 }), new ValidationResult());
+
+        assertEquals(2, small.size());
+        assertFalse(small.contains(first));
+    }
+
+    private static ValidationResultCache cache(ValidationService validationService, RevocationService revocationService) {
+        return new ValidationResultCache(validationService, revocationService, new ObjectMapper(), redisProvider(),
+                new SimpleMeterRegistry(), Duration.ofHours(1), 100, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> redisProvider() {
+        return mock(ObjectProvider.class);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.demo.validation.revocation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.crypto.CryptoPrimitives;
+import com.example.demo.helpers.SignTestPortHelper;
+
+class RevocationServiceTest {
+    private static final String OCSP_URL = "http://ocsp.test/responder";
+
+    private static final long HOUR = 3600_000L;
+
+    private static KeyPair caKeys;
+    private static X509Certificate ca;
+    private static X509Certificate revoked;
+    private static X509Certificate good;
+    private static X509Certificate withOcsp;
+
+    @TempDir
+    Path crlDirectory;
+
+    @BeforeAll
+    static void createPki() throws Exception {
+        CryptoPrimitives.provider();
+        caKeys = SignTestPortHelper.buildRSA2048KeyPairGenerator().generateKeyPair();
+        ca = certificate("CN=Test CA", 1, caKeys, null);
+        revoked = certificate("CN=Revoked", 2, caKeys, null);
+        good = certificate("CN=Good", 3, caKeys, null);
+        withOcsp = certificate("CN=Ocsp", 4, caKeys, OCSP_URL);
+    }
+
+    @Test
+    void answersFromTheCrlIndex() throws Exception {
+        writeCrl(new Date(System.currentTimeMillis() + HOUR));
+        RevocationService service = service(new FileSystemCrlSource(crlDirectory.toString()), (url, request) -> {
+            throw new IOException("no network");
+        });
+        service.refresh();
+
+        RevocationStatus revokedStatus = service.check(revoked, ca);
+        assertEquals(RevocationStatus.Status.REVOKED, revokedStatus.getStatus());
+        assertEquals(RevocationStatus.Source.CRL, revokedStatus.getSource());
+        assertNotNull(revokedStatus.getRevocationDate());
+        assertEquals(RevocationStatus.Status.GOOD, service.check(good, ca).getStatus());
+        assertEquals(1, service.getVersion());
+    }
+
+    @Test
+    void ignoresExpiredCrls() throws Exception {
+        writeCrl(new Date(System.currentTimeMillis() - 1000));
+        RevocationService service = service(new FileSystemCrlSource(crlDirectory.toString()), (url, request) -> {
+            throw new IOException("no network");
+        });
+        service.refresh();
+
+        assertEquals(RevocationStatus.Status.UNKNOWN, service.check(revoked, ca).getStatus());
+    }
+
+    @Test
+    void cachesOcspResponsesUntilNextUpdate() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RevocationService service = service(new FileSystemCrlSource(""), (url, request) -> {
+            calls.incrementAndGet();
+            assertEquals(OCSP_URL, url);
+            return respond(request, new Date(System.currentTimeMillis() + 2 * HOUR));
+        });
+
+        // A miss is answered from local data only and fetched in the background
+        assertEquals(RevocationStatus.Status.UNKNOWN, service.check(withOcsp, ca).getStatus());
+        assertEquals(0, calls.get());
+        service.fetchQueued();
+        assertEquals(1, service.getVersion());
+
+        RevocationStatus first = service.check(withOcsp, ca);
+        RevocationStatus second = service.check(withOcsp, ca);
+        assertEquals(RevocationStatus.Status.GOOD, first.getStatus());
+        assertEquals(RevocationStatus.Source.OCSP, first.getSource());
+        assertEquals(RevocationStatus.Status.GOOD, second.getStatus());
+        assertEquals(1, calls.get());
+
+        // Not due yet: the background refresh leaves it alone
+        service.refresh();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void refreshesOcspResponsesCloseToExpiry() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RevocationService service = service(new FileSystemCrlSource(""), (url, request) -> {
+            calls.incrementAndGet();
+            return respond(request, new Date(System.currentTimeMillis() + 10 * 60_000L));
+        });
+
+        service.check(withOcsp, ca);
+        service.fetchQueued();
+        service.refresh();
+        assertEquals(2, calls.get());
+        // Renewed with the same status: results keyed on the version stay valid
+        assertEquals(1, service.getVersion());
+        service.check(withOcsp, ca);
+        assertEquals(2, calls.get());
+        assertEquals(1, service.ocspCacheSize());
+    }
+
+    @Test
+    void derivesTheDataVersionFromTheDataOnly() throws Exception {
+        writeCrl(new Date(System.currentTimeMillis() + HOUR));
+        OcspClient ocspClient = (url, request) -> respond(request, new Date(System.currentTimeMillis() + 2 * HOUR));
+        RevocationService first = service(new FileSystemCrlSource(crlDirectory.toString()), ocspClient);
+        RevocationService second = service(new FileSystemCrlSource(crlDirectory.toString()), ocspClient);
+        first.refresh();
+        second.refresh();
+        second.refresh();
+        assertEquals(first.getDataVersion(), second.getDataVersion());
+
+        RevocationService withoutCrls = service(new FileSystemCrlSource(""), ocspClient);
+        RevocationService withOcspStatus = service(new FileSystemCrlSource(""), ocspClient);
+        withOcspStatus.check(withOcsp, ca);
+        withOcspStatus.fetchQueued();
+        assertNotEquals(withoutCrls.getDataVersion(), withOcspStatus.getDataVersion());
+        withoutCrls.check(withOcsp, ca);
+        withoutCrls.fetchQueued();
+        assertEquals(withoutCrls.getDataVersion(), withOcspStatus.getDataVersion());
+    }
+
+    private RevocationService service(CrlSource crlSource, OcspClient ocspClient) {
+        return new RevocationService(crlSource, ocspClient, new CryptoPrimitives(), true, false,
+                Duration.ofHours(1), Duration.ofMinutes(30), 100);
+    }
+
+    private void writeCrl(Date nextUpdate) throws Exception {
+        Date now = new Date();
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name(ca.getSubjectX500Principal().getName()),
+                new Date(now.getTime() - HOUR));
+        builder.setNextUpdate(nextUpdate);
+        builder.addCRLEntry(BigInteger.valueOf(100), now, CRLReason.superseded);
+        builder.addCRLEntry(revoked.getSerialNumber(), now, CRLReason.keyCompromise);
+        builder.addCRLEntry(BigInteger.valueOf(1000), now, CRLReason.superseded);
+        Files.write(crlDirectory.resolve("ca.crl"), builder.build(signer()).getEncoded());
+    }
+
+    private static byte[] respond(byte[] encodedRequest, Date nextUpdate) throws IOException {
+        try {
+            OCSPReq request = new OCSPReq(encodedRequest);
+            BasicOCSPRespBuilder builder = new BasicOCSPRespBuilder(
+                    new RespID(new X500Name(ca.getSubjectX500Principal().getName())));
+            for (Req single : request.getRequestList()) {
+                builder.addResponse(single.getCertID(), CertificateStatus.GOOD, new Date(), nextUpdate, null);
+            }
+            builder.setResponseExtensions(new Extensions(request.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce)));
+            return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL,
+                    builder.build(signer(), new X509CertificateHolder[0], new Date())).getEncoded();
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static X509Certificate certificate(String subject, long serial, KeyPair issuerKeys, String ocspUrl) throws Exception {
+        KeyPair keys = serial == 1 ? issuerKeys : SignTestPortHelper.buildRSA2048KeyPairGenerator().generateKeyPair();
+        Date now = new Date();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(new X500Name("CN=Test CA"),
+                BigInteger.valueOf(serial), new Date(now.getTime() - HOUR), new Date(now.getTime() + 24 * HOUR),
+                new X500Name(subject), keys.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(serial == 1));
+        if (ocspUrl != null) {
+            builder.addExtension(Extension.authorityInfoAccess, false, new AuthorityInformationAccess(
+                    new AccessDescription(AccessDescription.id_ad_ocsp, new GeneralName(GeneralName.uniformResourceIdentifier, ocspUrl))));
+        }
+        return new JcaX509CertificateConverter().setProvider(CryptoPrimitives.provider())
+                .getCertificate(builder.build(signer()));
+    }
+
+    private static ContentSigner signer() throws Exception {
+        return new JcaContentSignerBuilder("SHA256withRSA").setProvider(CryptoPrimitives.provider()).build(caKeys.getPrivate());
+    }
+}